@@ -1,6 +1,10 @@
+import com.google.protobuf.gradle.id
+
 plugins {
     id("io.micronaut.application") version "4.5.4"
     id("com.gradleup.shadow") version "8.3.7"
+    id("com.google.protobuf") version "0.9.4"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 version = "0.1"
@@ -21,6 +25,11 @@ dependencies {
     // HTTP client/server
     implementation("io.micronaut:micronaut-http-client")
     implementation("io.micronaut:micronaut-http-server-netty")
+    implementation("io.micronaut.reactor:micronaut-reactor")
+
+    // gRPC server (ProfileService from src/main/proto)
+    implementation("io.micronaut.grpc:micronaut-grpc-server-runtime")
+    implementation("io.grpc:grpc-services")
     
     // Serialization
     implementation("io.micronaut.serde:micronaut-serde-jackson")
@@ -28,6 +37,7 @@ dependencies {
     // Jackson for JSON parsing
     implementation("com.fasterxml.jackson.core:jackson-databind:2.15.2")
     implementation("com.fasterxml.jackson.core:jackson-core:2.15.2")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile:2.15.2")
     
     // Jakarta annotations
     implementation("jakarta.annotation:jakarta.annotation-api")
@@ -43,12 +53,14 @@ dependencies {
     
     // Caffeine cache
     implementation("com.github.ben-manes.caffeine:caffeine:3.1.8")
+    implementation("org.lz4:lz4-java:1.8.0")
     
     // Resilience4j core modules
     implementation("io.github.resilience4j:resilience4j-core:2.3.0")
     implementation("io.github.resilience4j:resilience4j-circuitbreaker:2.3.0")
     implementation("io.github.resilience4j:resilience4j-retry:2.3.0")
     implementation("io.github.resilience4j:resilience4j-ratelimiter:2.3.0")
+    implementation("io.github.resilience4j:resilience4j-bulkhead:2.3.0")
 //    implementation("io.github.resilience4j:resilience4j-decorators:2.2.0") // ✅ Required for Decorators
     
     implementation("com.microsoft.playwright:playwright:1.44.0")
@@ -64,6 +76,32 @@ java {
     targetCompatibility = JavaVersion.toVersion("21")
 }
 
+protobuf {
+    protoc {
+        artifact = "com.google.protobuf:protoc:3.25.5"
+    }
+    plugins {
+        id("grpc") {
+            artifact = "io.grpc:protoc-gen-grpc-java:1.68.1"
+        }
+    }
+    generateProtoTasks {
+        all().forEach {
+            it.plugins {
+                id("grpc")
+            }
+        }
+    }
+}
+
+// Microbenchmarks in src/jmh (./gradlew jmh); they reuse the reference parsers and fixtures under src/test
+jmh {
+    includeTests = true
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+}
+
 micronaut {
     testRuntime("junit5")
     processing {
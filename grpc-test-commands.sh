@@ -15,8 +15,25 @@ grpcurl -plaintext -d '{"username":"amankrmj01"}' localhost:9090 ProfileService/
 # 5. Get LeetCode Profile
 grpcurl -plaintext -d '{"username":"amankrmj01"}' localhost:9090 ProfileService/GetLeetCodeProfile
 
+# 6. Bulk lookups, one streamed result per user (kind: USER_PROFILE, CONTEST_HISTORY or HACKERRANK_PROFILE)
+grpcurl -plaintext -d '{"usernames":["amankrmj01","john_doe"],"kind":"USER_PROFILE"}' localhost:9090 ProfileService/GetProfiles
+
+# 7. Bidirectional bulk lookup: one request per line on stdin, results stream back as they resolve
+printf '{"username":"amankrmj01"}\n{"username":"john_doe","kind":"HACKERRANK_PROFILE"}\n' | \
+    grpcurl -plaintext -d @ localhost:9090 ProfileService/StreamProfiles
+
 # List all available services
 grpcurl -plaintext localhost:9090 list
 
 # List methods for ProfileService
 grpcurl -plaintext localhost:9090 list ProfileService
+
+# REST vs gRPC comparison (warm the cache first so both measure the cached path)
+# Payload size: JSON body vs protobuf message (grpcurl -v prints the encoded response size)
+curl -s "http://localhost:8080/leetcode/user/amankrmj01" | wc -c
+grpcurl -plaintext -v -d '{"username":"amankrmj01"}' localhost:9090 ProfileService/GetUserProfile | grep -i "size"
+
+# Latency under load: same user, 50 concurrent callers, 10k requests (hey and ghz)
+hey -n 10000 -c 50 "http://localhost:8080/leetcode/user/amankrmj01"
+ghz --insecure -n 10000 -c 50 -d '{"username":"amankrmj01"}' \
+    --call ProfileService/GetUserProfile localhost:9090
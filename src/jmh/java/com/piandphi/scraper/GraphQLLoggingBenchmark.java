@@ -0,0 +1,48 @@
+package com.piandphi.scraper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+// Per-call tracing on the GraphQL path, 8 threads at once as on the event loops: the System.out prints the scraper
+// used to make against the LOG.debug calls that replaced them, with the application's logback.xml (root at info).
+// The old prints go to a stream that discards the bytes, autoflushed like System.out, so they pay the shared lock
+// and the encoding but no console write: a lower bound for what they cost.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(8)
+public class GraphQLLoggingBenchmark {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LeetCodeScraper.class);
+
+    private String operationName;
+    private PrintStream out;
+
+    @Setup
+    public void setUp() {
+        operationName = "userProfile";
+        out = new PrintStream(OutputStream.nullOutputStream(), true);
+    }
+
+    @Benchmark
+    public void systemOutPrintln() {
+        out.println("Making async GraphQL API call for operation: " + operationName);
+    }
+
+    @Benchmark
+    public void slf4jDebug() {
+        LOG.debug("Async GraphQL call: {}", operationName);
+    }
+}
@@ -0,0 +1,106 @@
+package com.piandphi.scraper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The three HackerRank JSON responses a profile needs (hackerrank/*.json, shaped like the live endpoints), read by
+// the streaming parser against the same fields picked out of a readTree on a shared mapper. Setup checks both
+// give the same result.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HackerRankResponseParserBenchmark {
+
+    private static final ObjectMapper SHARED = new ObjectMapper();
+
+    private String profile;
+    private String badges;
+    private String scores;
+
+    @Setup
+    public void setUp() throws IOException {
+        profile = resource("profile.json");
+        badges = resource("badges.json");
+        scores = resource("scores_elo.json");
+        if (!HackerRankResponseParser.parseProfile(profile).equals(treeProfile(profile))
+                || !HackerRankResponseParser.parseBadges(badges).equals(treeBadges(badges))
+                || HackerRankResponseParser.parseBestRank(scores) != treeBestRank(scores)) {
+            throw new IllegalStateException("Streaming and tree parsing disagree on the fixtures");
+        }
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream in = HackerRankResponseParserBenchmark.class.getResourceAsStream("/hackerrank/" + name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) throws IOException {
+        blackhole.consume(HackerRankResponseParser.parseProfile(profile));
+        blackhole.consume(HackerRankResponseParser.parseBadges(badges));
+        blackhole.consume(HackerRankResponseParser.parseBestRank(scores));
+    }
+
+    @Benchmark
+    public void tree(Blackhole blackhole) throws IOException {
+        blackhole.consume(treeProfile(profile));
+        blackhole.consume(treeBadges(badges));
+        blackhole.consume(treeBestRank(scores));
+    }
+
+    private static HackerRankResponseParser.ProfileFields treeProfile(String body) throws IOException {
+        JsonNode model = SHARED.readTree(body).path("model");
+        String name = text(model, "name");
+        String fullName = !name.isBlank() ? name
+                : (text(model, "personal_first_name") + " " + text(model, "personal_last_name")).trim();
+        String shortBio = text(model, "short_bio");
+        return new HackerRankResponseParser.ProfileFields(fullName, text(model, "avatar"),
+                !shortBio.isBlank() ? shortBio : text(model, "about"));
+    }
+
+    private static HackerRankResponseParser.Badges treeBadges(String body) throws IOException {
+        List<String> names = new ArrayList<>();
+        int solved = 0;
+        for (JsonNode badge : SHARED.readTree(body).path("models")) {
+            String name = text(badge, "badge_name");
+            int stars = badge.path("stars").asInt(0);
+            solved += badge.path("solved").asInt(0);
+            if (!name.isBlank()) {
+                names.add(stars > 0 ? name + " (" + stars + (stars == 1 ? " star)" : " stars)") : name);
+            }
+        }
+        return new HackerRankResponseParser.Badges(names, solved);
+    }
+
+    private static int treeBestRank(String body) throws IOException {
+        int best = 0;
+        for (JsonNode track : SHARED.readTree(body)) {
+            int rank = track.path("practice").path("rank").asInt(0);
+            if (rank > 0 && (best == 0 || rank < best)) {
+                best = rank;
+            }
+        }
+        return best;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.path(field);
+        return value.isValueNode() && !value.isNull() ? value.asText() : "";
+    }
+}
@@ -0,0 +1,92 @@
+package com.piandphi.scraper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// The streaming parser against the tree-based parsing it replaced (TreeResponseParser, which builds a new
+// ObjectMapper per call as the scraper did), on the golden test fixtures. readTree is a shared mapper building the
+// tree and nothing else: a lower bound for any tree-based parser. listSize pads the submission and contest history
+// lists to that many entries by repeating the recorded ones, as for a user with a long history; 0 keeps the
+// fixture as recorded.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LeetCodeResponseParserBenchmark {
+
+    private static final ObjectMapper SHARED = new ObjectMapper();
+
+    @Param({"user-profile", "contest-history", "recent-submissions", "snapshot"})
+    public String fixture;
+
+    @Param({"0", "100"})
+    public int listSize;
+
+    private String body;
+
+    @Setup
+    public void setUp() throws IOException {
+        String recorded;
+        try (InputStream in = getClass().getResourceAsStream("/leetcode/" + fixture + ".json")) {
+            recorded = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        if (listSize == 0) {
+            body = recorded;
+            return;
+        }
+        JsonNode response = SHARED.readTree(recorded);
+        ObjectNode data = (ObjectNode) response.path("data");
+        pad(data.path("recentSubmissionList"));
+        pad(data.path("userContestRankingHistory"));
+        body = SHARED.writeValueAsString(response);
+    }
+
+    private void pad(JsonNode list) {
+        if (!(list instanceof ArrayNode array) || array.isEmpty()) {
+            return;
+        }
+        int recorded = array.size();
+        for (int i = recorded; i < listSize; i++) {
+            array.add(array.get(i % recorded).deepCopy());
+        }
+    }
+
+    @Benchmark
+    public Object streaming() throws IOException {
+        return switch (fixture) {
+            case "user-profile" -> LeetCodeResponseParser.parseUserProfile(body);
+            case "contest-history" -> LeetCodeResponseParser.parseContestHistory(body);
+            case "recent-submissions" -> LeetCodeResponseParser.parseRecentSubmissions(body);
+            default -> LeetCodeResponseParser.parseSnapshot(body);
+        };
+    }
+
+    @Benchmark
+    public Object tree() throws IOException {
+        return switch (fixture) {
+            case "user-profile" -> TreeResponseParser.parseUserProfile(body);
+            case "contest-history" -> TreeResponseParser.parseContestHistory(body);
+            case "recent-submissions" -> TreeResponseParser.parseRecentSubmissions(body);
+            default -> TreeResponseParser.parseSnapshot(body);
+        };
+    }
+
+    @Benchmark
+    public JsonNode readTree() throws IOException {
+        return SHARED.readTree(body);
+    }
+}
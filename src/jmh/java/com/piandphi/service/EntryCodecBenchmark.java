@@ -0,0 +1,90 @@
+package com.piandphi.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.piandphi.model.UserContestHistory;
+import com.piandphi.model.UserProfile;
+import io.micronaut.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+// What a cache load and a cache hit cost in each codec mode, done the way ManagedCache does them: a load encodes
+// the value, renders the response for plain entries and weighs the entry; a hit decodes the value, or serves the
+// response body, which a compact entry renders again. Values come from the test fixtures: a profile, and a contest
+// history padded to 100 contests.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EntryCodecBenchmark {
+
+    private static final ObjectMapper FIXTURES = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Param({"profile", "contestHistory"})
+    public String value;
+
+    @Param({"false", "true"})
+    public boolean compact;
+
+    private EntryCodec<Object> codec;
+    private Object decoded;
+    private Object payload;
+    private EncodedResponse response;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        Class<?> type;
+        if ("profile".equals(value)) {
+            type = UserProfile.class;
+            decoded = FIXTURES.treeToValue(fixture("user-profile.json").path("matchedUser"), type);
+        } else {
+            JsonNode data = fixture("contest-history.json");
+            ArrayNode history = (ArrayNode) data.path("userContestRankingHistory");
+            int recorded = history.size();
+            for (int i = recorded; i < 100; i++) {
+                history.add(history.get(i % recorded).deepCopy());
+            }
+            type = UserContestHistory.class;
+            decoded = FIXTURES.treeToValue(data, type);
+        }
+        codec = new EntryCodec<>((Class<Object>) type, compact, JsonMapper.createDefault());
+        payload = codec.encode(decoded);
+        response = codec.holdsResponse() ? codec.respond(decoded) : null;
+    }
+
+    private static JsonNode fixture(String name) throws IOException {
+        try (InputStream in = EntryCodecBenchmark.class.getResourceAsStream("/leetcode/" + name)) {
+            return FIXTURES.readTree(in).path("data");
+        }
+    }
+
+    @Benchmark
+    public int load() {
+        Object encoded = codec.encode(decoded);
+        EncodedResponse rendered = codec.holdsResponse() ? codec.respond(decoded) : null;
+        return codec.weigh(encoded, rendered);
+    }
+
+    @Benchmark
+    public Object hitValue() {
+        return codec.decode(payload);
+    }
+
+    @Benchmark
+    public EncodedResponse hitResponse() {
+        return response != null ? response : codec.respond(codec.decode(payload));
+    }
+}
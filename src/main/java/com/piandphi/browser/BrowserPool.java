@@ -0,0 +1,251 @@
+package com.piandphi.browser;
+
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Playwright;
+import com.microsoft.playwright.options.WaitUntilState;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.serde.annotation.Serdeable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// A fixed set of warm headless Chromium instances for pages that only render their data client-side. Each slot
+// owns its own Playwright, browser, context and page (Playwright objects must only be used by one thread at a
+// time, which the lease guarantees). Slots are handed out through a bounded queue with a lease timeout; images,
+// fonts, stylesheets and media are never downloaded. A slot is relaunched after max-uses leases, or after a
+// failure, so browser memory stays flat. Only created with browser-pool.enabled=true, since it needs the
+// Playwright browsers installed.
+@Singleton
+@Requires(property = "browser-pool.enabled", value = "true")
+public class BrowserPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BrowserPool.class);
+    private static final Set<String> BLOCKED_RESOURCES = Set.of("image", "font", "stylesheet", "media");
+
+    private final int size;
+    private final int maxUses;
+    private final Duration leaseTimeout;
+    private final Duration navigationTimeout;
+    private final boolean warmOnStartup;
+
+    private final BlockingQueue<Slot> idle;
+    private final List<Slot> slots = new ArrayList<>();
+
+    private final AtomicInteger leased = new AtomicInteger();
+    private final LongAdder leases = new LongAdder();
+    private final LongAdder leaseTimeouts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder recycles = new LongAdder();
+    private final LongAdder totalLeaseWaitNanos = new LongAdder();
+    private final AtomicLong maxLeaseWaitNanos = new AtomicLong();
+
+    public BrowserPool(@Value("${browser-pool.size:2}") int size,
+                       @Value("${browser-pool.max-uses:50}") int maxUses,
+                       @Value("${browser-pool.lease-timeout:10s}") Duration leaseTimeout,
+                       @Value("${browser-pool.navigation-timeout:15s}") Duration navigationTimeout,
+                       @Value("${browser-pool.warm-on-startup:true}") boolean warmOnStartup) {
+        this.size = Math.max(1, size);
+        this.maxUses = Math.max(1, maxUses);
+        this.leaseTimeout = leaseTimeout;
+        this.navigationTimeout = navigationTimeout;
+        this.warmOnStartup = warmOnStartup;
+        this.idle = new ArrayBlockingQueue<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            Slot slot = new Slot(i);
+            slots.add(slot);
+            idle.add(slot);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        LOG.info("Browser pool: {} browsers, recycled after {} uses, lease timeout {} ms",
+                size, maxUses, leaseTimeout.toMillis());
+        if (!warmOnStartup) {
+            return;
+        }
+        for (Slot slot : slots) {
+            try {
+                slot.page();
+            } catch (RuntimeException e) {
+                // Launched again on first lease
+                LOG.warn("Could not start browser {}: {}", slot.id, e.getMessage());
+                slot.close();
+            }
+        }
+    }
+
+    // Navigates to the URL and returns the rendered DOM as HTML
+    public String render(String url) {
+        return withPage(page -> {
+            page.navigate(url, new Page.NavigateOptions().setWaitUntil(WaitUntilState.NETWORKIDLE));
+            return page.content();
+        });
+    }
+
+    // Runs the work on a leased page. Blocks up to lease-timeout for a free browser.
+    public <T> T withPage(Function<Page, T> work) {
+        Slot slot = lease();
+        boolean healthy = false;
+        try {
+            T result = work.apply(slot.page());
+            healthy = true;
+            return result;
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            release(slot, healthy);
+        }
+    }
+
+    private Slot lease() {
+        long start = System.nanoTime();
+        Slot slot;
+        try {
+            slot = idle.poll(leaseTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BrowserPoolException("Interrupted while waiting for a browser", e);
+        }
+        long waited = System.nanoTime() - start;
+        totalLeaseWaitNanos.add(waited);
+        maxLeaseWaitNanos.accumulateAndGet(waited, Math::max);
+        if (slot == null) {
+            leaseTimeouts.increment();
+            throw new BrowserPoolException("No browser available after " + leaseTimeout.toMillis() + " ms");
+        }
+        leases.increment();
+        leased.incrementAndGet();
+        return slot;
+    }
+
+    private void release(Slot slot, boolean healthy) {
+        try {
+            if (!healthy || ++slot.uses >= maxUses) {
+                recycles.increment();
+                slot.close();
+            } else {
+                slot.reset();
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Could not reset browser {}, relaunching on next lease: {}", slot.id, e.getMessage());
+            slot.close();
+        } finally {
+            leased.decrementAndGet();
+            idle.add(slot);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        LOG.info("Closing browser pool...");
+        slots.forEach(Slot::close);
+    }
+
+    public BrowserPoolStats getStats() {
+        long count = leases.sum();
+        return new BrowserPoolStats(
+                size,
+                leased.get(),
+                count,
+                leaseTimeouts.sum(),
+                count > 0 ? totalLeaseWaitNanos.sum() / 1_000_000.0 / count : 0.0,
+                maxLeaseWaitNanos.get() / 1_000_000.0,
+                failures.sum(),
+                recycles.sum()
+        );
+    }
+
+    private final class Slot {
+        private final int id;
+        private Playwright playwright;
+        private Browser browser;
+        private BrowserContext context;
+        private Page page;
+        private int uses;
+
+        private Slot(int id) {
+            this.id = id;
+        }
+
+        private Page page() {
+            if (page == null) {
+                launch();
+            }
+            return page;
+        }
+
+        private void launch() {
+            long start = System.nanoTime();
+            playwright = Playwright.create();
+            browser = playwright.chromium().launch(new BrowserType.LaunchOptions().setHeadless(true));
+            context = browser.newContext();
+            context.route("**/*", route -> {
+                if (BLOCKED_RESOURCES.contains(route.request().resourceType())) {
+                    route.abort();
+                } else {
+                    route.resume();
+                }
+            });
+            page = context.newPage();
+            page.setDefaultNavigationTimeout(navigationTimeout.toMillis());
+            page.setDefaultTimeout(navigationTimeout.toMillis());
+            LOG.info("Started browser {} in {} ms", id, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        // Leaves nothing from the previous lease behind for the next one
+        private void reset() {
+            if (page != null) {
+                context.clearCookies();
+                page.navigate("about:blank");
+            }
+        }
+
+        private void close() {
+            if (playwright != null) {
+                try {
+                    playwright.close();
+                } catch (RuntimeException e) {
+                    LOG.debug("Error closing browser {}: {}", id, e.getMessage());
+                }
+            }
+            playwright = null;
+            browser = null;
+            context = null;
+            page = null;
+            uses = 0;
+        }
+    }
+
+    @Serdeable.Serializable
+    public record BrowserPoolStats(
+            int browsers,
+            int leased,
+            long leases,
+            long leaseTimeouts,
+            double averageLeaseWaitMs,
+            double maxLeaseWaitMs,
+            long failures,
+            long recycles
+    ) {
+    }
+}
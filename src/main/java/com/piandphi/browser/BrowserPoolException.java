@@ -0,0 +1,12 @@
+package com.piandphi.browser;
+
+public class BrowserPoolException extends RuntimeException {
+
+    public BrowserPoolException(String message) {
+        super(message);
+    }
+
+    public BrowserPoolException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,337 @@
+package com.piandphi.cache;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.convert.format.ReadableBytes;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+// Durable second tier behind the in-memory caches. Each cache gets a region: a directory under
+// profile-cache.store.directory holding one file per entry, spread over 256 shard directories. Entries are opaque
+// bytes in a format chosen by the caller. Only writes that are not on disk yet are kept in memory, as the bytes
+// to be written and up to max-pending in total; a scheduled flush writes just those (write-behind) and shutdown
+// flushes whatever is left. A memory miss reads the entry's file. Entries keep the time they were cached, so TTLs
+// carry across restarts, and expired files are deleted by a periodic sweep.
+@Singleton
+public class ProfileCacheRoot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProfileCacheRoot.class);
+
+    // Formats of stored bytes: JSON as rendered for a response, or a compact cache payload
+    public static final byte FORMAT_JSON = 1;
+    public static final byte FORMAT_COMPACT = 2;
+
+    // cachedAt, ttlMillis and format, ahead of the bytes
+    private static final int HEADER_BYTES = 2 * Long.BYTES + 1;
+    // Longer keys are not stored, their file names would be too long
+    private static final int MAX_KEY_BYTES = 100;
+    private static final String SUFFIX = ".entry";
+
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+
+    // Bytes waiting for the next flush, across all regions
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    private final boolean enabled;
+    private final boolean warmOnStartup;
+    private final Path directory;
+    private final long maxPendingBytes;
+
+    public ProfileCacheRoot(@Value("${profile-cache.store.enabled:true}") boolean enabled,
+                            @Value("${profile-cache.store.warm-on-startup:true}") boolean warmOnStartup,
+                            @Value("${profile-cache.store.directory:storage}") String directory,
+                            @Value("${profile-cache.store.max-pending:16MB}") @ReadableBytes long maxPendingBytes) {
+        this.enabled = enabled;
+        this.warmOnStartup = warmOnStartup;
+        this.directory = Paths.get(directory);
+        this.maxPendingBytes = maxPendingBytes;
+        LOG.info("Profile store {} (directory {}, warm on startup {}, up to {} bytes pending)",
+                enabled ? "enabled" : "disabled", this.directory.toAbsolutePath(), warmOnStartup, maxPendingBytes);
+    }
+
+    public boolean isWarmOnStartup() {
+        return enabled && warmOnStartup;
+    }
+
+    // Most memory the pending writes can take, to be set aside from the caches' memory budget
+    public long pendingLimit() {
+        return enabled ? maxPendingBytes : 0;
+    }
+
+    // Opens the region for one cache. Entries older than their own TTL (maxAge when they have none) are never
+    // returned, and their files are deleted by the sweep.
+    public Region region(String name, Duration maxAge) {
+        Region region = new Region(name, maxAge.toMillis());
+        regions.put(name, region);
+        return region;
+    }
+
+    @Scheduled(fixedDelay = "${profile-cache.store.flush-interval:5s}", initialDelay = "${profile-cache.store.flush-interval:5s}")
+    public void flush() {
+        if (enabled) {
+            regions.values().forEach(Region::flush);
+        }
+    }
+
+    @Scheduled(fixedDelay = "${profile-cache.store.sweep-interval:10m}", initialDelay = "${profile-cache.store.sweep-interval:10m}")
+    public void sweep() {
+        if (enabled) {
+            regions.values().forEach(Region::sweep);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        LOG.info("Flushing profile store...");
+        flush();
+    }
+
+    // ttlMillis is the entry's own TTL, 0 for entries written before TTLs were per entry
+    public record StoredEntry(byte format, byte[] bytes, long cachedAt, long ttlMillis) {
+    }
+
+    public final class Region {
+        private final String name;
+        private final long maxAgeMillis;
+        // Written but not flushed yet; an entry is removed once its file is in place
+        private final Map<String, StoredEntry> pending = new ConcurrentHashMap<>();
+        private final AtomicLong regionPendingBytes = new AtomicLong();
+
+        private Region(String name, long maxAgeMillis) {
+            this.name = name;
+            this.maxAgeMillis = maxAgeMillis;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        // Null when absent or past maxAge. Reads the entry's file, so it must not be called on a request thread.
+        public StoredEntry get(String key) {
+            if (!enabled || !storable(key)) {
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            StoredEntry stored = pending.get(key);
+            if (stored == null) {
+                stored = read(key);
+            }
+            return stored != null && !isExpired(stored.cachedAt(), stored.ttlMillis(), now) ? stored : null;
+        }
+
+        // The bytes are kept as given until flushed, so they must not be modified afterwards. Dropped when the
+        // pending writes are already at max-pending: the entry is then only in memory until it is loaded again.
+        public void put(String key, byte format, byte[] bytes, long cachedAt, long ttlMillis) {
+            if (!enabled || !storable(key)) {
+                return;
+            }
+            if (pendingBytes.get() + bytes.length > maxPendingBytes) {
+                LOG.debug("Profile store write-behind full, not storing {} entry {}", name, key);
+                return;
+            }
+            StoredEntry previous = pending.put(key, new StoredEntry(format, bytes, cachedAt, ttlMillis));
+            addPending(bytes.length - (previous != null ? previous.bytes().length : 0));
+        }
+
+        // Memory held by writes not flushed yet
+        public long pendingBytes() {
+            return regionPendingBytes.get();
+        }
+
+        // Synchronized with flush, so no write in progress recreates a file after it
+        public synchronized void clear() {
+            if (!enabled) {
+                return;
+            }
+            pending.keySet().forEach(key -> {
+                StoredEntry removed = pending.remove(key);
+                if (removed != null) {
+                    addPending(-removed.bytes().length);
+                }
+            });
+            try (Stream<Path> files = entryFiles()) {
+                files.forEach(this::delete);
+            }
+        }
+
+        // Every unexpired stored entry; reads the whole region from disk, so meant for warming at startup
+        public void forEach(BiConsumer<String, StoredEntry> action) {
+            if (!enabled) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            pending.forEach((key, stored) -> {
+                if (!isExpired(stored.cachedAt(), stored.ttlMillis(), now)) {
+                    action.accept(key, stored);
+                }
+            });
+            try (Stream<Path> files = entryFiles()) {
+                files.forEach(file -> {
+                    String key = keyOf(file);
+                    if (key == null || pending.containsKey(key)) {
+                        return;
+                    }
+                    StoredEntry stored = read(key);
+                    if (stored != null && !isExpired(stored.cachedAt(), stored.ttlMillis(), now)) {
+                        action.accept(key, stored);
+                    }
+                });
+            }
+        }
+
+        private void addPending(long delta) {
+            regionPendingBytes.addAndGet(delta);
+            pendingBytes.addAndGet(delta);
+        }
+
+        private boolean isExpired(long cachedAt, long ttlMillis, long now) {
+            long ttl = ttlMillis > 0 ? Math.min(ttlMillis, maxAgeMillis) : maxAgeMillis;
+            return now - cachedAt >= ttl;
+        }
+
+        private boolean storable(String key) {
+            return key.getBytes(StandardCharsets.UTF_8).length <= MAX_KEY_BYTES;
+        }
+
+        private Path root() {
+            return directory.resolve(name);
+        }
+
+        // <directory>/<cache>/<shard>/<hex key>.entry; String.hashCode is fixed by the spec, so shards are stable
+        private Path file(String key) {
+            String shard = HexFormat.of().toHexDigits((byte) key.hashCode());
+            return root().resolve(shard).resolve(HexFormat.of().formatHex(key.getBytes(StandardCharsets.UTF_8)) + SUFFIX);
+        }
+
+        private String keyOf(Path file) {
+            String fileName = file.getFileName().toString();
+            try {
+                return new String(HexFormat.of().parseHex(fileName, 0, fileName.length() - SUFFIX.length()), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        private Stream<Path> entryFiles() {
+            if (!Files.isDirectory(root())) {
+                return Stream.empty();
+            }
+            try {
+                return Files.find(root(), 2, (path, attributes) -> attributes.isRegularFile()
+                        && path.getFileName().toString().endsWith(SUFFIX));
+            } catch (IOException e) {
+                LOG.warn("Could not list stored {} entries: {}", name, e.getMessage());
+                return Stream.empty();
+            }
+        }
+
+        private StoredEntry read(String key) {
+            Path file = file(key);
+            try {
+                byte[] bytes = Files.readAllBytes(file);
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                long cachedAt = buffer.getLong();
+                long ttlMillis = buffer.getLong();
+                byte format = buffer.get();
+                byte[] stored = new byte[buffer.remaining()];
+                buffer.get(stored);
+                return new StoredEntry(format, stored, cachedAt, ttlMillis);
+            } catch (NoSuchFileException e) {
+                return null;
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Could not read stored {} entry {}, dropping it: {}", name, key, e.getMessage());
+                delete(file);
+                return null;
+            }
+        }
+
+        // Writes each pending entry to a temp file and moves it into place, so a crash never leaves a torn file.
+        // An entry replaced while being written stays pending for the next flush.
+        private synchronized void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            int written = 0;
+            for (Map.Entry<String, StoredEntry> entry : List.copyOf(pending.entrySet())) {
+                StoredEntry stored = entry.getValue();
+                try {
+                    if (!isExpired(stored.cachedAt(), stored.ttlMillis(), now)) {
+                        write(entry.getKey(), stored);
+                        written++;
+                    }
+                    if (pending.remove(entry.getKey(), stored)) {
+                        addPending(-stored.bytes().length);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Could not write {} entry {}: {}", name, entry.getKey(), e.getMessage());
+                }
+            }
+            LOG.debug("Flushed {} {} entries to {}", written, name, root());
+        }
+
+        private void write(String key, StoredEntry stored) throws IOException {
+            byte[] bytes = ByteBuffer.allocate(HEADER_BYTES + stored.bytes().length)
+                    .putLong(stored.cachedAt())
+                    .putLong(stored.ttlMillis())
+                    .put(stored.format())
+                    .put(stored.bytes())
+                    .array();
+            Path file = file(key);
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.createDirectories(file.getParent());
+            Files.write(temp, bytes);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        // Deletes expired files, reading only their headers
+        private synchronized void sweep() {
+            long now = System.currentTimeMillis();
+            int[] deleted = new int[1];
+            try (Stream<Path> files = entryFiles()) {
+                files.forEach(file -> {
+                    try (InputStream in = Files.newInputStream(file)) {
+                        ByteBuffer header = ByteBuffer.wrap(in.readNBytes(HEADER_BYTES));
+                        if (header.remaining() < HEADER_BYTES || isExpired(header.getLong(), header.getLong(), now)) {
+                            delete(file);
+                            deleted[0]++;
+                        }
+                    } catch (IOException e) {
+                        LOG.debug("Could not check stored {} entry {}: {}", name, file, e.getMessage());
+                    }
+                });
+            }
+            if (deleted[0] > 0) {
+                LOG.info("Deleted {} expired {} entries from the store", deleted[0], name);
+            }
+        }
+
+        private void delete(Path file) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.debug("Could not delete {}: {}", file, e.getMessage());
+            }
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.piandphi.controller;
 import com.piandphi.service.ProfileCacheService;
 import io.micronaut.http.annotation.*;
 import io.micronaut.http.HttpResponse;
+import io.micronaut.scheduling.TaskExecutors;
+import io.micronaut.scheduling.annotation.ExecuteOn;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,7 +25,9 @@ public class CacheController {
         return cacheService.getCacheStats();
     }
 
+    // Deletes the store's files, so it runs off the event loop
     @Post("/clear")
+    @ExecuteOn(TaskExecutors.BLOCKING)
     public HttpResponse<String> clearAllCache() {
         LOG.warn("Clearing all cache data via API request");
         cacheService.clearAllCache();
@@ -0,0 +1,40 @@
+package com.piandphi.controller;
+
+import com.piandphi.service.EncodedResponse;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MediaType;
+
+// Writes a pre-encoded cache entry as the response: the JSON bytes go out as they are, tagged with the entry's
+// ETag, and a request whose If-None-Match already names that tag gets 304 Not Modified with no body.
+final class CachedResponses {
+
+    private CachedResponses() {
+    }
+
+    static HttpResponse<?> of(EncodedResponse response, String ifNoneMatch) {
+        if (matches(response.etag(), ifNoneMatch)) {
+            return HttpResponse.notModified().header(HttpHeaders.ETAG, response.etag());
+        }
+        return HttpResponse.ok(response.body())
+                .contentType(MediaType.APPLICATION_JSON_TYPE)
+                .header(HttpHeaders.ETAG, response.etag());
+    }
+
+    // If-None-Match uses weak comparison and may list several tags or "*"
+    private static boolean matches(String etag, String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,24 @@
+package com.piandphi.controller;
+
+import com.piandphi.execution.ScrapeExecutor;
+import io.micronaut.http.annotation.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Controller("/execution")
+public class ExecutionController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExecutionController.class);
+
+    private final ScrapeExecutor scrapeExecutor;
+
+    public ExecutionController(ScrapeExecutor scrapeExecutor) {
+        this.scrapeExecutor = scrapeExecutor;
+    }
+
+    @Get("/stats")
+    public ScrapeExecutor.ExecutionStats getExecutionStats() {
+        LOG.info("Returning scrape execution statistics");
+        return scrapeExecutor.getStats();
+    }
+}
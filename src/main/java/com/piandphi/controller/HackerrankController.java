@@ -1,12 +1,24 @@
 package com.piandphi.controller;
 
-import com.piandphi.model.HackerRankProfile;
+import com.piandphi.execution.ScrapeExecutor;
 import com.piandphi.scraper.HackerRankScraper;
+import com.piandphi.scraper.ScraperRouter;
 import com.piandphi.service.ProfileCacheService;
+import com.piandphi.service.ProfileNotFoundException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
 import io.micronaut.http.annotation.*;
+import io.micronaut.http.exceptions.HttpStatusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
 @Controller("/hackerrank")
 public class HackerrankController {
 
@@ -14,30 +26,52 @@ public class HackerrankController {
 
     private final HackerRankScraper hackerRankScraper;
     private final ProfileCacheService cacheService;
+    private final ScrapeExecutor scrapeExecutor;
+    private final ScraperRouter scraperRouter;
 
-    public HackerrankController(HackerRankScraper hackerRankScraper, ProfileCacheService cacheService) {
+    public HackerrankController(HackerRankScraper hackerRankScraper, ProfileCacheService cacheService,
+                                ScrapeExecutor scrapeExecutor, ScraperRouter scraperRouter) {
         this.hackerRankScraper = hackerRankScraper;
         this.cacheService = cacheService;
+        this.scrapeExecutor = scrapeExecutor;
+        this.scraperRouter = scraperRouter;
     }
 
     @Get("/{username}")
-    public HackerRankProfile getHackerRank(@PathVariable String username) {
+    public CompletableFuture<HttpResponse<?>> getHackerRank(@PathVariable String username,
+                                                           @Header(HttpHeaders.IF_NONE_MATCH) @Nullable String ifNoneMatch) {
         LOG.info("Fetching HackerRank profile for: {}", username);
 
-        // Try to get from cache first
-        HackerRankProfile cachedProfile = cacheService.getHackerRankProfile(username);
-        if (cachedProfile != null) {
-            LOG.info("Returning cached HackerRank profile for: {}", username);
-            return cachedProfile;
+        // Hits are written from the cached JSON, or answered 304 when the ETag matches
+        if (scrapeExecutor.isVirtual()) {
+            return withErrorStatus(username, scrapeExecutor.supply(() -> CachedResponses.of(cacheService.getOrLoadHackerRankProfileResponse(username, () -> {
+                LOG.info("Cache miss - scraping fresh HackerRank profile for: {}", username);
+                return scraperRouter.isolateBlocking(ScraperRouter.HACKERRANK, () -> hackerRankScraper.scrapeResult(username));
+            }), ifNoneMatch)));
         }
 
-        // Cache miss - scrape fresh data
-        LOG.info("Cache miss - scraping fresh HackerRank profile for: {}", username);
-        HackerRankProfile profile = hackerRankScraper.scrape(username);
-
-        // Cache the result
-        cacheService.cacheHackerRankProfile(username, profile);
+        // Each scrape attempt runs on the scrape executor; retries are scheduled without holding a thread
+        return withErrorStatus(username, cacheService.getOrLoadHackerRankProfileResponseAsync(username, () -> {
+            LOG.info("Cache miss - scraping fresh HackerRank profile for: {}", username);
+            return scraperRouter.isolate(ScraperRouter.HACKERRANK, () -> hackerRankScraper.scrapeResultAsync(username));
+        }).thenApply(response -> CachedResponses.of(response, ifNoneMatch)));
+    }
 
-        return profile;
+    // 404 for users HackerRank does not know, including ones remembered from earlier lookups; 503 and 504 when
+    // the platform's bulkhead rejected or timed out the fetch; other errors pass through
+    private static CompletableFuture<HttpResponse<?>> withErrorStatus(String username, CompletableFuture<HttpResponse<?>> result) {
+        return result.exceptionally(e -> {
+            if (ProfileNotFoundException.causedBy(e)) {
+                throw new HttpStatusException(HttpStatus.NOT_FOUND, "HackerRank user not found: " + username);
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof BulkheadFullException) {
+                throw new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, "HackerRank is at capacity, retry later");
+            }
+            if (cause instanceof TimeoutException) {
+                throw new HttpStatusException(HttpStatus.GATEWAY_TIMEOUT, "Timed out fetching HackerRank profile");
+            }
+            throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+        });
     }
 }
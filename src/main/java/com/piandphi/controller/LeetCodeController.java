@@ -1,115 +1,234 @@
 package com.piandphi.controller;
 
+import com.piandphi.execution.ScrapeExecutor;
+import com.piandphi.model.BulkLookupResult;
 import com.piandphi.model.UserProfile;
-import com.piandphi.model.UserContestHistory;
+import com.piandphi.model.UserSnapshot;
 import com.piandphi.model.UserSubmissions;
+import com.piandphi.resilience.ScrapeResult;
 import com.piandphi.scraper.LeetCodeScraper;
+import com.piandphi.scraper.ScraperRouter;
 import com.piandphi.service.ProfileCacheService;
+import com.piandphi.service.ProfileNotFoundException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.http.annotation.*;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
 import io.micronaut.http.exceptions.HttpStatusException;
-import io.micronaut.scheduling.TaskExecutors;
-import io.micronaut.scheduling.annotation.ExecuteOn;
 import org.slf4j.Logger;
+import org.reactivestreams.Publisher;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// In REACTIVE mode fully non-blocking: cache hits complete immediately and misses are scraped on the HTTP
+// client's event loop, so no request thread is held while upstream responds. In VIRTUAL mode the blocking
+// scrape path runs on a virtual thread per request instead. Profile and contest history hits are written from the
+// cache's pre-encoded JSON with an ETag, and answered with 304 when the client already has that version.
 @Controller("/leetcode")
-@ExecuteOn(TaskExecutors.BLOCKING)
 public class LeetCodeController {
 
     private static final Logger LOG = LoggerFactory.getLogger(LeetCodeController.class);
 
     private final LeetCodeScraper leetCodeScraper;
     private final ProfileCacheService cacheService;
-
-    public LeetCodeController(LeetCodeScraper leetCodeScraper, ProfileCacheService cacheService) {
+    private final ScrapeExecutor scrapeExecutor;
+    private final ScraperRouter scraperRouter;
+
+    // Bulk lookup limits
+    private final int bulkConcurrency;
+    private final Duration bulkItemTimeout;
+    private final int bulkMaxUsernames;
+
+    // Largest submissions limit a request may ask for
+    private final int maxSubmissionLimit;
+
+    public LeetCodeController(LeetCodeScraper leetCodeScraper, ProfileCacheService cacheService,
+                              ScrapeExecutor scrapeExecutor, ScraperRouter scraperRouter,
+                              @Value("${leetcode.bulk.concurrency:16}") int bulkConcurrency,
+                              @Value("${leetcode.bulk.item-timeout:20s}") Duration bulkItemTimeout,
+                              @Value("${leetcode.bulk.max-usernames:500}") int bulkMaxUsernames,
+                              @Value("${leetcode.submissions.max-limit:100}") int maxSubmissionLimit) {
         this.leetCodeScraper = leetCodeScraper;
         this.cacheService = cacheService;
+        this.scrapeExecutor = scrapeExecutor;
+        this.scraperRouter = scraperRouter;
+        this.bulkConcurrency = bulkConcurrency;
+        this.bulkItemTimeout = bulkItemTimeout;
+        this.bulkMaxUsernames = bulkMaxUsernames;
+        this.maxSubmissionLimit = maxSubmissionLimit;
     }
 
     @Get("/user/{username}")
-    public UserProfile getUserProfile(@PathVariable String username) {
-        try {
-            LOG.info("Fetching user profile for: {}", username);
-
-            // Try to get from cache first
-            UserProfile cachedProfile = cacheService.getUserProfile(username);
-            if (cachedProfile != null) {
-                LOG.info("Returning cached user profile for: {}", username);
-                return cachedProfile;
-            }
-
-            // Cache miss - scrape fresh data
-            LOG.info("Cache miss - scraping fresh user profile for: {}", username);
-            UserProfile profile = leetCodeScraper.scrapeUserProfile(username);
-
-            // Cache the result
-            cacheService.cacheUserProfile(username, profile);
-
-            return profile;
-        } catch (Exception e) {
-            LOG.error("Error fetching user profile for {}: {}", username, e.getMessage());
-            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error fetching user profile: " + e.getMessage());
+    public CompletableFuture<HttpResponse<?>> getUserProfile(@PathVariable String username,
+                                                            @Header(HttpHeaders.IF_NONE_MATCH) @Nullable String ifNoneMatch) {
+        LOG.info("Fetching user profile for: {}", username);
+
+        if (scrapeExecutor.isVirtual()) {
+            return withErrorHandling("user profile", username,
+                    () -> scrapeExecutor.supply(() -> CachedResponses.of(cacheService.getOrLoadUserProfileResponse(username,
+                            () -> scraperRouter.isolateBlocking(ScraperRouter.LEETCODE, () -> leetCodeScraper.scrapeUserProfileResult(username))), ifNoneMatch)));
         }
+
+        // Served from cache; concurrent misses share a single scrape
+        return withErrorHandling("user profile", username,
+                () -> cacheService.getOrLoadUserProfileResponseAsync(username, () -> {
+                    LOG.info("Cache miss - scraping fresh user profile for: {}", username);
+                    return scraperRouter.isolate(ScraperRouter.LEETCODE, () -> leetCodeScraper.scrapeUserProfileResultAsync(username));
+                }).thenApply(response -> CachedResponses.of(response, ifNoneMatch)));
     }
 
     @Get("/user/{username}/contests")
-    public UserContestHistory getUserContestHistory(@PathVariable String username) {
-        try {
-            LOG.info("Fetching contest history for: {}", username);
+    public CompletableFuture<HttpResponse<?>> getUserContestHistory(@PathVariable String username,
+                                                                   @Header(HttpHeaders.IF_NONE_MATCH) @Nullable String ifNoneMatch) {
+        LOG.info("Fetching contest history for: {}", username);
+
+        if (scrapeExecutor.isVirtual()) {
+            return withErrorHandling("contest history", username,
+                    () -> scrapeExecutor.supply(() -> CachedResponses.of(cacheService.getOrLoadContestHistoryResponse(username,
+                            () -> scraperRouter.isolateBlocking(ScraperRouter.LEETCODE, () -> leetCodeScraper.scrapeContestHistoryResult(username))), ifNoneMatch)));
+        }
 
-            // Try to get from cache first
-            UserContestHistory cachedHistory = cacheService.getContestHistory(username);
-            if (cachedHistory != null) {
-                LOG.info("Returning cached contest history for: {}", username);
-                return cachedHistory;
-            }
+        // Served from cache; concurrent misses share a single scrape
+        return withErrorHandling("contest history", username,
+                () -> cacheService.getOrLoadContestHistoryResponseAsync(username, () -> {
+                    LOG.info("Cache miss - scraping fresh contest history for: {}", username);
+                    return scraperRouter.isolate(ScraperRouter.LEETCODE, () -> leetCodeScraper.scrapeContestHistoryResultAsync(username));
+                }).thenApply(response -> CachedResponses.of(response, ifNoneMatch)));
+    }
 
-            // Cache miss - scrape fresh data
-            LOG.info("Cache miss - scraping fresh contest history for: {}", username);
-            UserContestHistory history = leetCodeScraper.scrapeContestHistory(username);
+    @Get("/user/{username}/submissions")
+    public CompletableFuture<List<UserSubmissions.RecentSubmission>> getRecentSubmissions(
+            @PathVariable String username,
+            @QueryValue Optional<Integer> limit) {
+        int submissionLimit = submissionLimit(limit);
 
-            // Cache the result
-            cacheService.cacheContestHistory(username, history);
+        LOG.info("Fetching recent submissions for: {} (limit: {})", username, submissionLimit);
 
-            return history;
-        } catch (Exception e) {
-            LOG.error("Error fetching contest history for {}: {}", username, e.getMessage());
-            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error fetching contest history: " + e.getMessage());
+        if (scrapeExecutor.isVirtual()) {
+            return withErrorHandling("submissions", username,
+                    () -> scrapeExecutor.supply(() -> cacheService.getOrLoadSubmissions(username, submissionLimit,
+                            fetchLimit -> scraperRouter.isolateBlocking(ScraperRouter.LEETCODE, () -> leetCodeScraper.scrapeRecentSubmissionsResult(username, fetchLimit)))));
         }
+
+        // Served by slicing the longest list cached for the user; only a larger limit goes upstream
+        return withErrorHandling("submissions", username,
+                () -> cacheService.getOrLoadSubmissionsAsync(username, submissionLimit, fetchLimit -> {
+                    LOG.info("Cache miss - scraping fresh submissions for: {} (limit: {})", username, fetchLimit);
+                    return scraperRouter.isolate(ScraperRouter.LEETCODE, () -> leetCodeScraper.scrapeRecentSubmissionsResultAsync(username, fetchLimit));
+                }));
     }
 
-    @Get("/user/{username}/submissions")
-    public List<UserSubmissions.RecentSubmission> getRecentSubmissions(
+    // Profile, contest history and recent submissions together; a miss costs one upstream round trip
+    // and fills all three caches
+    @Get("/user/{username}/snapshot")
+    public CompletableFuture<UserSnapshot> getUserSnapshot(
             @PathVariable String username,
             @QueryValue Optional<Integer> limit) {
-        try {
-            int submissionLimit = limit.orElse(20);
-            String cacheKey = username + "_" + submissionLimit; // Include limit in cache key
+        int submissionLimit = submissionLimit(limit);
+        LOG.info("Fetching snapshot for: {} (limit: {})", username, submissionLimit);
+
+        return withErrorHandling("snapshot", username,
+                () -> cacheService.getOrLoadSnapshotAsync(username, submissionLimit, () -> {
+                    LOG.info("Cache miss - scraping fresh snapshot for: {} (limit: {})", username, submissionLimit);
+                    return scraperRouter.isolate(ScraperRouter.LEETCODE, () -> leetCodeScraper.scrapeSnapshotResultAsync(username, submissionLimit));
+                }));
+    }
 
-            LOG.info("Fetching recent submissions for: {} (limit: {})", username, submissionLimit);
+    private int submissionLimit(Optional<Integer> limit) {
+        int submissionLimit = limit.orElse(20);
+        if (submissionLimit < 1 || submissionLimit > maxSubmissionLimit) {
+            throw new HttpStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + maxSubmissionLimit);
+        }
+        return submissionLimit;
+    }
+
+    // Streams one result per username as newline-delimited JSON. Cache hits are written immediately; misses
+    // are scraped in parallel up to leetcode.bulk.concurrency and written as each completes, each bounded by
+    // its own timeout so a slow user cannot hold up the rest of the batch.
+    @Post(value = "/users", produces = MediaType.APPLICATION_JSON_STREAM)
+    public Publisher<BulkLookupResult> getUserProfiles(@Body List<String> usernames) {
+        List<String> distinctUsernames = usernames.stream()
+                .filter(username -> username != null && !username.isBlank())
+                .map(String::trim)
+                .distinct()
+                .toList();
+        if (distinctUsernames.size() > bulkMaxUsernames) {
+            throw new HttpStatusException(HttpStatus.BAD_REQUEST, "At most " + bulkMaxUsernames + " usernames per request");
+        }
 
-            // Try to get from cache first
-            List<UserSubmissions.RecentSubmission> cachedSubmissions = cacheService.getSubmissions(cacheKey);
-            if (cachedSubmissions != null) {
-                LOG.info("Returning cached submissions for: {} (count: {})", username, cachedSubmissions.size());
-                return cachedSubmissions;
+        List<BulkLookupResult> hits = new ArrayList<>();
+        List<String> misses = new ArrayList<>();
+        for (String username : distinctUsernames) {
+            ScrapeResult<UserProfile> cached = cacheService.peekUserProfileResult(username);
+            if (cached != null) {
+                hits.add(new BulkLookupResult(username, bulkStatus(cached, BulkLookupResult.Status.HIT), cached.value(), null));
+            } else {
+                misses.add(username);
             }
+        }
+        LOG.info("Bulk lookup of {} user profiles ({} cached, {} to scrape)", distinctUsernames.size(), hits.size(), misses.size());
 
-            // Cache miss - scrape fresh data
-            LOG.info("Cache miss - scraping fresh submissions for: {} (limit: {})", username, submissionLimit);
-            List<UserSubmissions.RecentSubmission> submissions = leetCodeScraper.scrapeRecentSubmissions(username, submissionLimit);
+        return Flux.concat(
+                Flux.fromIterable(hits),
+                Flux.fromIterable(misses).flatMap(username -> Mono.fromFuture(() -> lookupForBulk(username)), bulkConcurrency)
+        );
+    }
+
+    private CompletableFuture<BulkLookupResult> lookupForBulk(String username) {
+        return cacheService.getOrLoadUserProfileResultAsync(username, () -> scraperRouter.isolate(ScraperRouter.LEETCODE, () -> leetCodeScraper.scrapeUserProfileResultAsync(username)))
+                .orTimeout(bulkItemTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(result -> new BulkLookupResult(username, bulkStatus(result, BulkLookupResult.Status.FRESH), result.value(), null))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    String message = cause instanceof TimeoutException
+                            ? "Timed out after " + bulkItemTimeout.toMillis() + " ms"
+                            : cause.getMessage();
+                    LOG.warn("Bulk lookup failed for {}: {}", username, message);
+                    return new BulkLookupResult(username, BulkLookupResult.Status.ERROR, null, message);
+                });
+    }
 
-            // Cache the result
-            cacheService.cacheSubmissions(cacheKey, submissions);
+    // A fallback entry is reported as such whether it was just loaded or already cached
+    private static BulkLookupResult.Status bulkStatus(ScrapeResult<?> result, BulkLookupResult.Status otherwise) {
+        return result.isFallback() ? BulkLookupResult.Status.FALLBACK : otherwise;
+    }
 
-            return submissions;
+    private <T> CompletableFuture<T> withErrorHandling(String what, String username, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result;
+        try {
+            result = call.get();
         } catch (Exception e) {
-            LOG.error("Error fetching submissions for {}: {}", username, e.getMessage());
-            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error fetching submissions: " + e.getMessage());
+            result = CompletableFuture.failedFuture(e);
         }
+        return result.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (ProfileNotFoundException.causedBy(cause)) {
+                LOG.info("LeetCode user not found: {}", username);
+                throw new HttpStatusException(HttpStatus.NOT_FOUND, "LeetCode user not found: " + username);
+            }
+            if (cause instanceof BulkheadFullException) {
+                throw new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, "LeetCode is at capacity, retry later");
+            }
+            if (cause instanceof TimeoutException) {
+                throw new HttpStatusException(HttpStatus.GATEWAY_TIMEOUT, "Timed out fetching " + what);
+            }
+            LOG.error("Error fetching {} for {}: {}", what, username, cause.getMessage());
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error fetching " + what + ": " + cause.getMessage());
+        });
     }
 }
@@ -0,0 +1,69 @@
+package com.piandphi.controller;
+
+import com.piandphi.scraper.ScraperRouter;
+import com.piandphi.service.ProfileNotFoundException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.annotation.*;
+import io.micronaut.http.exceptions.HttpStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+// One endpoint for every platform plugged into ScraperRouter
+@Controller("/platforms")
+public class PlatformController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PlatformController.class);
+
+    private final ScraperRouter scraperRouter;
+
+    public PlatformController(ScraperRouter scraperRouter) {
+        this.scraperRouter = scraperRouter;
+    }
+
+    @Get
+    public Set<String> getPlatforms() {
+        return scraperRouter.platforms();
+    }
+
+    @Get("/stats")
+    public List<ScraperRouter.PlatformStats> getPlatformStats() {
+        LOG.info("Returning platform bulkhead statistics");
+        return scraperRouter.getStats();
+    }
+
+    @Get("/{platform}/{username}")
+    public CompletableFuture<HttpResponse<?>> getProfile(@PathVariable String platform, @PathVariable String username,
+                                                        @Header(HttpHeaders.IF_NONE_MATCH) @Nullable String ifNoneMatch) {
+        if (!scraperRouter.supports(platform)) {
+            throw new HttpStatusException(HttpStatus.NOT_FOUND, "Unknown platform: " + platform);
+        }
+        LOG.info("Fetching {} profile for: {}", platform, username);
+
+        return scraperRouter.profile(platform, username)
+                .<HttpResponse<?>>thenApply(response -> CachedResponses.of(response, ifNoneMatch))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    LOG.error("Error fetching {} profile for {}: {}", platform, username, cause.getMessage());
+                    if (ProfileNotFoundException.causedBy(cause)) {
+                        throw new HttpStatusException(HttpStatus.NOT_FOUND, platform + " user not found: " + username);
+                    }
+                    if (cause instanceof BulkheadFullException) {
+                        throw new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, platform + " is at capacity, retry later");
+                    }
+                    if (cause instanceof TimeoutException) {
+                        throw new HttpStatusException(HttpStatus.GATEWAY_TIMEOUT, "Timed out fetching " + platform + " profile");
+                    }
+                    throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error fetching " + platform + " profile: " + cause.getMessage());
+                });
+    }
+}
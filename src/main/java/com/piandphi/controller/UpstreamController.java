@@ -0,0 +1,41 @@
+package com.piandphi.controller;
+
+import com.piandphi.browser.BrowserPool;
+import com.piandphi.upstream.UpstreamHttpClient;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.annotation.*;
+import io.micronaut.http.exceptions.HttpStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+@Controller("/upstream")
+public class UpstreamController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UpstreamController.class);
+
+    private final UpstreamHttpClient upstreamHttpClient;
+    private final BrowserPool browserPool;
+
+    public UpstreamController(UpstreamHttpClient upstreamHttpClient, @Nullable BrowserPool browserPool) {
+        this.upstreamHttpClient = upstreamHttpClient;
+        this.browserPool = browserPool;
+    }
+
+    @Get("/stats")
+    public List<UpstreamHttpClient.UpstreamStats> getUpstreamStats() {
+        LOG.info("Returning upstream connection pool statistics");
+        return upstreamHttpClient.getStats();
+    }
+
+    @Get("/browsers")
+    public BrowserPool.BrowserPoolStats getBrowserPoolStats() {
+        if (browserPool == null) {
+            throw new HttpStatusException(HttpStatus.NOT_FOUND, "Browser pool is disabled (browser-pool.enabled)");
+        }
+        LOG.info("Returning browser pool statistics");
+        return browserPool.getStats();
+    }
+}
@@ -0,0 +1,153 @@
+package com.piandphi.execution;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.TaskExecutors;
+import io.micronaut.serde.annotation.Serdeable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Runs blocking scrape work (controllers, blocking ResilientScraper attempts, background refreshes).
+// REACTIVE mode keeps LeetCode on the non-blocking path and sends the remaining blocking work to the BLOCKING
+// pool; VIRTUAL mode runs all of it on a virtual thread per task so upstream slowdowns cannot exhaust a pool.
+//
+// Pinning hazards on the virtual-thread path: cache loaders run outside Caffeine's map compute (ManagedCache),
+// blocking retries wait with a plain sleep and Jackson only parses in-memory strings, so no upstream I/O
+// happens while a monitor is held. Any pinning that does occur is reported via the JFR VirtualThreadPinned event.
+@Singleton
+public class ScrapeExecutor implements Executor {
+
+    public enum Mode {
+        REACTIVE,
+        VIRTUAL
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScrapeExecutor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final Mode mode;
+    private final Duration pinnedThreshold;
+    private final ExecutorService delegate;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder tasks = new LongAdder();
+    private final LongAdder pinnedEvents = new LongAdder();
+    private final AtomicLong pinnedNanos = new AtomicLong();
+
+    private RecordingStream pinnedEventStream;
+
+    public ScrapeExecutor(@Value("${execution.mode:reactive}") String mode,
+                          @Value("${execution.pinned-threshold:20ms}") Duration pinnedThreshold,
+                          @Named(TaskExecutors.BLOCKING) ExecutorService blockingExecutor) {
+        this.mode = Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+        this.pinnedThreshold = pinnedThreshold;
+        this.delegate = this.mode == Mode.VIRTUAL
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("scrape-vt-", 0).factory())
+                : blockingExecutor;
+    }
+
+    @PostConstruct
+    public void init() {
+        LOG.info("Scrape execution mode: {}", mode);
+        if (mode != Mode.VIRTUAL) {
+            return;
+        }
+        try {
+            pinnedEventStream = new RecordingStream();
+            pinnedEventStream.enable(PINNED_EVENT).withThreshold(pinnedThreshold).withStackTrace();
+            pinnedEventStream.onEvent(PINNED_EVENT, event -> {
+                pinnedEvents.increment();
+                pinnedNanos.addAndGet(event.getDuration().toNanos());
+                LOG.warn("Virtual thread pinned to its carrier for {} ms at {}", event.getDuration().toMillis(), topFrame(event));
+            });
+            pinnedEventStream.startAsync();
+        } catch (Exception | LinkageError e) {
+            LOG.warn("JFR is unavailable, virtual thread pinning will not be reported: {}", e.getMessage());
+            pinnedEventStream = null;
+        }
+    }
+
+    private static String topFrame(RecordedEvent event) {
+        if (event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty()) {
+            return "unknown";
+        }
+        RecordedFrame frame = event.getStackTrace().getFrames().get(0);
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pinnedEventStream != null) {
+            pinnedEventStream.close();
+        }
+        if (mode == Mode.VIRTUAL) {
+            delegate.shutdown();
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isVirtual() {
+        return mode == Mode.VIRTUAL;
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, this);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(() -> {
+            int current = inFlight.incrementAndGet();
+            peakInFlight.accumulateAndGet(current, Math::max);
+            tasks.increment();
+            try {
+                command.run();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    public ExecutionStats getStats() {
+        return new ExecutionStats(
+                mode.name().toLowerCase(Locale.ROOT),
+                inFlight.get(),
+                peakInFlight.get(),
+                tasks.sum(),
+                pinnedEvents.sum(),
+                pinnedNanos.get() / 1_000_000
+        );
+    }
+
+    @Serdeable.Serializable
+    public record ExecutionStats(
+            String mode,
+            int tasksInFlight,
+            int peakTasksInFlight,
+            long tasksExecuted,
+            long pinnedEvents,
+            long pinnedMillis
+    ) {
+    }
+}
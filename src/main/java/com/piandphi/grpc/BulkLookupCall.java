@@ -0,0 +1,162 @@
+package com.piandphi.grpc;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+// Drives one bulk lookup stream with flow control in both directions. Usernames are pulled from the source only
+// while fewer than `buffer` lookups are held (received but not yet written), and results are written only while
+// the transport reports the client ready. A slow client therefore stops the pulling instead of piling results up
+// in memory, however many usernames it sends. Cache hits are written as soon as they arrive; misses go upstream
+// at most `concurrency` at a time. All state is guarded by this object: gRPC callbacks and load completions
+// arrive on different threads.
+final class BulkLookupCall {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkLookupCall.class);
+
+    private final ServerCallStreamObserver<BulkLookupResponse> responses;
+    private final int concurrency;
+    private final int buffer;
+    private final Function<BulkLookupRequest, BulkLookupResponse> peek;
+    private final Function<BulkLookupRequest, CompletableFuture<BulkLookupResponse>> load;
+
+    private final Deque<BulkLookupRequest> waiting = new ArrayDeque<>();
+    private final Deque<BulkLookupResponse> ready = new ArrayDeque<>();
+    private IntConsumer source;
+    private int held;
+    private int requested;
+    private int inFlight;
+    private int hits;
+    private int written;
+    private boolean inputDone;
+    private boolean cancelled;
+    private boolean finished;
+    private boolean draining;
+
+    // peek returns a response for a cache hit (or an invalid request) and null otherwise; load must not fail
+    BulkLookupCall(ServerCallStreamObserver<BulkLookupResponse> responses, int concurrency, int buffer,
+                   Function<BulkLookupRequest, BulkLookupResponse> peek,
+                   Function<BulkLookupRequest, CompletableFuture<BulkLookupResponse>> load) {
+        this.responses = responses;
+        this.concurrency = Math.max(1, concurrency);
+        this.buffer = Math.max(this.concurrency, buffer);
+        this.peek = peek;
+        this.load = load;
+    }
+
+    // Must be called from the RPC method itself. The source is asked for up to n more requests at a time and
+    // answers through accept() and inputCompleted(), synchronously or later.
+    synchronized void start(IntConsumer source) {
+        this.source = source;
+        responses.setOnCancelHandler(this::cancel);
+        responses.setOnReadyHandler(this::drain);
+        drain();
+    }
+
+    synchronized void accept(BulkLookupRequest request) {
+        requested = Math.max(0, requested - 1);
+        if (cancelled || finished) {
+            return;
+        }
+        held++;
+        BulkLookupResponse hit = peek.apply(request);
+        if (hit != null) {
+            if (hit.getStatus() == BulkLookupResponse.Status.HIT) {
+                hits++;
+            }
+            ready.add(hit);
+        } else if (inFlight < concurrency) {
+            startLoad(request);
+        } else {
+            waiting.add(request);
+        }
+        drain();
+    }
+
+    synchronized void inputCompleted() {
+        inputDone = true;
+        requested = 0;
+        drain();
+    }
+
+    synchronized void cancel() {
+        if (!cancelled && !finished) {
+            LOG.info("Bulk gRPC stream cancelled after {} results ({} still held)", written, held);
+        }
+        cancelled = true;
+        waiting.clear();
+        ready.clear();
+    }
+
+    private void startLoad(BulkLookupRequest request) {
+        inFlight++;
+        CompletableFuture<BulkLookupResponse> result;
+        try {
+            result = load.apply(request);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((response, error) -> completed(error == null ? response : error(request, error.getMessage())));
+    }
+
+    private synchronized void completed(BulkLookupResponse response) {
+        inFlight--;
+        if (cancelled) {
+            return;
+        }
+        ready.add(response);
+        while (inFlight < concurrency && !waiting.isEmpty()) {
+            startLoad(waiting.poll());
+        }
+        drain();
+    }
+
+    // Writes what the client can take, then tops the inbound side up to the buffer. Re-entrant calls (a
+    // synchronous source, a load that completes inline) return at once and are picked up by the loop.
+    private synchronized void drain() {
+        if (draining || finished || cancelled || source == null) {
+            return;
+        }
+        draining = true;
+        try {
+            boolean progress = true;
+            while (progress && !cancelled) {
+                progress = false;
+                while (!ready.isEmpty() && responses.isReady()) {
+                    responses.onNext(ready.poll());
+                    held--;
+                    written++;
+                    progress = true;
+                }
+                int room = buffer - held - requested;
+                if (!inputDone && room > 0) {
+                    requested += room;
+                    source.accept(room);
+                    progress = true;
+                }
+            }
+            if (inputDone && held == 0 && !cancelled) {
+                finished = true;
+                LOG.info("Bulk gRPC stream finished: {} results ({} cached)", written, hits);
+                responses.onCompleted();
+            }
+        } finally {
+            draining = false;
+        }
+    }
+
+    static BulkLookupResponse error(BulkLookupRequest request, String message) {
+        return BulkLookupResponse.newBuilder()
+                .setUsername(request.getUsername())
+                .setKind(request.getKind())
+                .setStatus(BulkLookupResponse.Status.ERROR)
+                .setError(message != null ? message : "Lookup failed")
+                .build();
+    }
+}
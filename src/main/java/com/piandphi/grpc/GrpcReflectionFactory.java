@@ -0,0 +1,18 @@
+package com.piandphi.grpc;
+
+import io.grpc.BindableService;
+import io.grpc.protobuf.services.ProtoReflectionService;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Requires;
+import jakarta.inject.Singleton;
+
+// Server reflection, so grpcurl can list and call ProfileService without the .proto file (grpc-test-commands.sh)
+@Factory
+public class GrpcReflectionFactory {
+
+    @Singleton
+    @Requires(property = "grpc.server.reflection.enabled", notEquals = "false")
+    public BindableService reflectionService() {
+        return ProtoReflectionService.newInstance();
+    }
+}
@@ -0,0 +1,273 @@
+package com.piandphi.grpc;
+
+import com.piandphi.model.HackerRankProfile;
+import com.piandphi.model.UserContestHistory;
+import com.piandphi.model.UserProfile;
+import com.piandphi.resilience.ScrapeResult;
+import com.piandphi.scraper.HackerRankScraper;
+import com.piandphi.scraper.LeetCodeScraper;
+import com.piandphi.scraper.ScraperRouter;
+import com.piandphi.service.ProfileCacheService;
+import com.piandphi.service.ProfileNotFoundException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// gRPC ProfileService (src/main/proto/profile_snap.proto), served on grpc.server.port next to the HTTP server.
+// It goes through the same caches and scrapers as the REST controllers, using their non-blocking variants.
+@Singleton
+public class ProfileGrpcService extends ProfileServiceGrpc.ProfileServiceImplBase {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProfileGrpcService.class);
+
+    private final LeetCodeScraper leetCodeScraper;
+    private final HackerRankScraper hackerRankScraper;
+    private final ProfileCacheService cacheService;
+    private final ScraperRouter scraperRouter;
+    private final int bulkConcurrency;
+    private final Duration bulkItemTimeout;
+    private final int bulkStreamBuffer;
+    private final int maxSubmissionLimit;
+
+    public ProfileGrpcService(LeetCodeScraper leetCodeScraper, HackerRankScraper hackerRankScraper,
+                              ProfileCacheService cacheService, ScraperRouter scraperRouter,
+                              @Value("${leetcode.bulk.concurrency:16}") int bulkConcurrency,
+                              @Value("${leetcode.bulk.item-timeout:20s}") Duration bulkItemTimeout,
+                              @Value("${leetcode.bulk.stream-buffer:64}") int bulkStreamBuffer,
+                              @Value("${leetcode.submissions.max-limit:100}") int maxSubmissionLimit) {
+        this.leetCodeScraper = leetCodeScraper;
+        this.hackerRankScraper = hackerRankScraper;
+        this.cacheService = cacheService;
+        this.scraperRouter = scraperRouter;
+        this.bulkConcurrency = bulkConcurrency;
+        this.bulkItemTimeout = bulkItemTimeout;
+        this.bulkStreamBuffer = bulkStreamBuffer;
+        this.maxSubmissionLimit = maxSubmissionLimit;
+    }
+
+    @Override
+    public void getUserProfile(PlatformRequest request, StreamObserver<UserProfileResponse> responseObserver) {
+        String username = request.getUsername();
+        LOG.info("gRPC GetUserProfile for: {}", username);
+        respond("user profile", username, responseObserver,
+                () -> cacheService.getOrLoadUserProfileAsync(username, () -> scraperRouter.isolate(ScraperRouter.LEETCODE, () -> leetCodeScraper.scrapeUserProfileResultAsync(username))),
+                ProtoMapper::toProto);
+    }
+
+    @Override
+    public void getLeetCodeProfile(PlatformRequest request, StreamObserver<LeetCodeResponse> responseObserver) {
+        String username = request.getUsername();
+        LOG.info("gRPC GetLeetCodeProfile for: {}", username);
+        respond("LeetCode profile", username, responseObserver,
+                () -> cacheService.getOrLoadUserProfileAsync(username, () -> scraperRouter.isolate(ScraperRouter.LEETCODE, () -> leetCodeScraper.scrapeUserProfileResultAsync(username))),
+                ProtoMapper::toLeetCodeProto);
+    }
+
+    @Override
+    public void getUserContestHistory(PlatformRequest request, StreamObserver<UserContestHistoryResponse> responseObserver) {
+        String username = request.getUsername();
+        LOG.info("gRPC GetUserContestHistory for: {}", username);
+        respond("contest history", username, responseObserver,
+                () -> cacheService.getOrLoadContestHistoryAsync(username, () -> scraperRouter.isolate(ScraperRouter.LEETCODE, () -> leetCodeScraper.scrapeContestHistoryResultAsync(username))),
+                ProtoMapper::toProto);
+    }
+
+    @Override
+    public void getUserSubmissions(UserSubmissionsRequest request, StreamObserver<UserSubmissionsResponse> responseObserver) {
+        String username = request.getUsername();
+        int limit = request.hasLimit() ? request.getLimit() : 20;
+        LOG.info("gRPC GetUserSubmissions for: {} (limit: {})", username, limit);
+        if (limit < 1 || limit > maxSubmissionLimit) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("limit must be between 1 and " + maxSubmissionLimit).asRuntimeException());
+            return;
+        }
+        respond("submissions", username, responseObserver,
+                () -> cacheService.getOrLoadSubmissionsAsync(username, limit,
+                        fetchLimit -> scraperRouter.isolate(ScraperRouter.LEETCODE, () -> leetCodeScraper.scrapeRecentSubmissionsResultAsync(username, fetchLimit))),
+                ProtoMapper::toProto);
+    }
+
+    @Override
+    public void getHackerRankProfile(PlatformRequest request, StreamObserver<HackerRankResponse> responseObserver) {
+        String username = request.getUsername();
+        LOG.info("gRPC GetHackerRankProfile for: {}", username);
+        respond("HackerRank profile", username, responseObserver,
+                () -> cacheService.getOrLoadHackerRankProfileAsync(username, () -> scraperRouter.isolate(ScraperRouter.HACKERRANK, () -> hackerRankScraper.scrapeResultAsync(username))),
+                ProtoMapper::toProto);
+    }
+
+    // Server-streaming bulk lookup: the usernames arrive in one message and are fed to the stream as it has room
+    @Override
+    public void getProfiles(BulkRequest request, StreamObserver<BulkLookupResponse> responseObserver) {
+        List<String> usernames = request.getUsernamesList().stream()
+                .filter(username -> !username.isBlank())
+                .map(String::trim)
+                .distinct()
+                .toList();
+        LOG.info("gRPC GetProfiles for {} usernames ({})", usernames.size(), request.getKind());
+        Iterator<String> pending = usernames.iterator();
+        BulkLookupCall call = bulkCall(responseObserver);
+        call.start(count -> {
+            for (int i = 0; i < count && pending.hasNext(); i++) {
+                call.accept(BulkLookupRequest.newBuilder()
+                        .setUsername(pending.next())
+                        .setKind(request.getKind())
+                        .build());
+            }
+            if (!pending.hasNext()) {
+                call.inputCompleted();
+            }
+        });
+    }
+
+    // Bidirectional bulk lookup: inbound messages are requested explicitly (no auto-request), so the client's
+    // sends are held back by HTTP/2 flow control while the server has a full buffer
+    @Override
+    public StreamObserver<BulkLookupRequest> streamProfiles(StreamObserver<BulkLookupResponse> responseObserver) {
+        LOG.info("gRPC StreamProfiles opened");
+        ServerCallStreamObserver<BulkLookupResponse> responses = (ServerCallStreamObserver<BulkLookupResponse>) responseObserver;
+        responses.disableAutoRequest();
+        BulkLookupCall call = bulkCall(responses);
+        call.start(responses::request);
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(BulkLookupRequest request) {
+                call.accept(request);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                LOG.warn("gRPC StreamProfiles aborted by client: {}", t.getMessage());
+                call.cancel();
+            }
+
+            @Override
+            public void onCompleted() {
+                call.inputCompleted();
+            }
+        };
+    }
+
+    private BulkLookupCall bulkCall(StreamObserver<BulkLookupResponse> responseObserver) {
+        return new BulkLookupCall((ServerCallStreamObserver<BulkLookupResponse>) responseObserver,
+                bulkConcurrency, bulkStreamBuffer, this::peekForBulk, this::loadForBulk);
+    }
+
+    // A response for a cache hit or an invalid request, null when the lookup has to go upstream
+    private BulkLookupResponse peekForBulk(BulkLookupRequest request) {
+        String username = request.getUsername();
+        if (username.isBlank()) {
+            return BulkLookupCall.error(request, "username is required");
+        }
+        switch (request.getKind()) {
+            case USER_PROFILE -> {
+                ScrapeResult<UserProfile> profile = cacheService.peekUserProfileResult(username);
+                return profile != null
+                        ? bulkResult(request, profile, BulkLookupResponse.Status.HIT).setUserProfile(ProtoMapper.toProto(profile.value())).build()
+                        : null;
+            }
+            case CONTEST_HISTORY -> {
+                ScrapeResult<UserContestHistory> history = cacheService.peekContestHistoryResult(username);
+                return history != null
+                        ? bulkResult(request, history, BulkLookupResponse.Status.HIT).setContestHistory(ProtoMapper.toProto(history.value())).build()
+                        : null;
+            }
+            case HACKERRANK_PROFILE -> {
+                ScrapeResult<HackerRankProfile> profile = cacheService.peekHackerRankProfileResult(username);
+                return profile != null
+                        ? bulkResult(request, profile, BulkLookupResponse.Status.HIT).setHackerrankProfile(ProtoMapper.toProto(profile.value())).build()
+                        : null;
+            }
+            default -> {
+                return BulkLookupCall.error(request, "Unknown lookup kind: " + request.getKindValue());
+            }
+        }
+    }
+
+    private CompletableFuture<BulkLookupResponse> loadForBulk(BulkLookupRequest request) {
+        String username = request.getUsername();
+        CompletableFuture<BulkLookupResponse> result = switch (request.getKind()) {
+            case USER_PROFILE -> cacheService.getOrLoadUserProfileResultAsync(username, () -> scraperRouter.isolate(ScraperRouter.LEETCODE, () -> leetCodeScraper.scrapeUserProfileResultAsync(username)))
+                    .thenApply(profile -> bulkResult(request, profile, BulkLookupResponse.Status.FRESH).setUserProfile(ProtoMapper.toProto(profile.value())).build());
+            case CONTEST_HISTORY -> cacheService.getOrLoadContestHistoryResultAsync(username, () -> scraperRouter.isolate(ScraperRouter.LEETCODE, () -> leetCodeScraper.scrapeContestHistoryResultAsync(username)))
+                    .thenApply(history -> bulkResult(request, history, BulkLookupResponse.Status.FRESH).setContestHistory(ProtoMapper.toProto(history.value())).build());
+            case HACKERRANK_PROFILE -> cacheService.getOrLoadHackerRankProfileResultAsync(username, () -> scraperRouter.isolate(ScraperRouter.HACKERRANK, () -> hackerRankScraper.scrapeResultAsync(username)))
+                    .thenApply(profile -> bulkResult(request, profile, BulkLookupResponse.Status.FRESH).setHackerrankProfile(ProtoMapper.toProto(profile.value())).build());
+            default -> CompletableFuture.failedFuture(new IllegalArgumentException("Unknown lookup kind: " + request.getKindValue()));
+        };
+        return result
+                .orTimeout(bulkItemTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    String message = cause instanceof TimeoutException
+                            ? "Timed out after " + bulkItemTimeout.toMillis() + " ms"
+                            : cause.getMessage();
+                    LOG.warn("Bulk gRPC lookup failed for {} ({}): {}", username, request.getKind(), message);
+                    return BulkLookupCall.error(request, message);
+                });
+    }
+
+    // The status follows the cached entry, so a fallback is reported as such whether just loaded or already cached
+    private static BulkLookupResponse.Builder bulkResult(BulkLookupRequest request, ScrapeResult<?> result, BulkLookupResponse.Status otherwise) {
+        return BulkLookupResponse.newBuilder()
+                .setUsername(request.getUsername())
+                .setKind(request.getKind())
+                .setStatus(result.isFallback() ? BulkLookupResponse.Status.FALLBACK : otherwise);
+    }
+
+    private <T, R> void respond(String what, String username, StreamObserver<R> responseObserver,
+                                Supplier<CompletableFuture<T>> call, Function<T, R> mapper) {
+        if (username == null || username.isBlank()) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("username is required").asRuntimeException());
+            return;
+        }
+
+        CompletableFuture<T> result;
+        try {
+            result = call.get();
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, error) -> {
+            if (error == null) {
+                try {
+                    responseObserver.onNext(mapper.apply(value));
+                    responseObserver.onCompleted();
+                    return;
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            LOG.error("Error fetching {} for {} over gRPC: {}", what, username, cause.getMessage());
+            Status status;
+            if (ProfileNotFoundException.causedBy(cause)) {
+                status = Status.NOT_FOUND;
+            } else if (cause instanceof BulkheadFullException) {
+                status = Status.UNAVAILABLE;
+            } else if (cause instanceof TimeoutException) {
+                status = Status.DEADLINE_EXCEEDED;
+            } else {
+                status = Status.INTERNAL;
+            }
+            responseObserver.onError(status.withDescription("Error fetching " + what + ": " + cause.getMessage())
+                    .withCause(cause)
+                    .asRuntimeException());
+        });
+    }
+}
@@ -0,0 +1,219 @@
+package com.piandphi.grpc;
+
+import com.piandphi.model.HackerRankProfile;
+import com.piandphi.model.UserContestHistory;
+import com.piandphi.model.UserProfile;
+import com.piandphi.model.UserSubmissions;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// Maps the model records straight into protobuf builders, field by field, with no intermediate objects.
+// Protobuf setters reject null, so absent values are simply left unset (proto3 optional fields then report
+// hasX() == false, plain fields keep their default).
+final class ProtoMapper {
+
+    private ProtoMapper() {
+    }
+
+    static UserProfileResponse toProto(UserProfile profile) {
+        UserProfileResponse.Builder builder = UserProfileResponse.newBuilder();
+        set(profile.username(), builder::setUsername);
+        set(profile.githubUrl(), builder::setGithubUrl);
+        set(profile.twitterUrl(), builder::setTwitterUrl);
+        set(profile.linkedinUrl(), builder::setLinkedinUrl);
+        if (profile.profile() != null) {
+            builder.setProfile(toProto(profile.profile()));
+        }
+        if (profile.submitStats() != null) {
+            SubmitStats.Builder submitStats = builder.getSubmitStatsBuilder();
+            addSubmissionCounts(profile.submitStats().acSubmissionNum(), submitStats::addAcSubmissionNum);
+            addSubmissionCounts(profile.submitStats().totalSubmissionNum(), submitStats::addTotalSubmissionNum);
+        }
+        if (profile.contestBadge() != null) {
+            ContestBadge.Builder badge = builder.getContestBadgeBuilder();
+            set(profile.contestBadge().name(), badge::setName);
+            set(profile.contestBadge().expired(), badge::setExpired);
+            set(profile.contestBadge().hoverText(), badge::setHoverText);
+            set(profile.contestBadge().icon(), badge::setIcon);
+        }
+        return builder.build();
+    }
+
+    private static Profile toProto(UserProfile.Profile profile) {
+        Profile.Builder builder = Profile.newBuilder();
+        set(profile.userAvatar(), builder::setUserAvatar);
+        set(profile.realName(), builder::setRealName);
+        addStrings(profile.websites(), builder::addWebsites);
+        set(profile.countryName(), builder::setCountryName);
+        set(profile.company(), builder::setCompany);
+        set(profile.jobTitle(), builder::setJobTitle);
+        addStrings(profile.skillTags(), builder::addSkillTags);
+        set(profile.school(), builder::setSchool);
+        set(profile.aboutMe(), builder::setAboutMe);
+        set(profile.postViewCount(), builder::setPostViewCount);
+        set(profile.postViewCountDiff(), builder::setPostViewCountDiff);
+        set(profile.reputation(), builder::setReputation);
+        set(profile.ranking(), builder::setRanking);
+        set(profile.reputationDiff(), builder::setReputationDiff);
+        set(profile.solutionCount(), builder::setSolutionCount);
+        set(profile.solutionCountDiff(), builder::setSolutionCountDiff);
+        set(profile.categoryDiscussCount(), builder::setCategoryDiscussCount);
+        set(profile.categoryDiscussCountDiff(), builder::setCategoryDiscussCountDiff);
+        set(profile.certificationLevel(), builder::setCertificationLevel);
+        return builder.build();
+    }
+
+    private static void addSubmissionCounts(List<UserProfile.SubmissionCount> counts, Consumer<SubmissionCount> add) {
+        if (counts == null) {
+            return;
+        }
+        for (UserProfile.SubmissionCount count : counts) {
+            SubmissionCount.Builder builder = SubmissionCount.newBuilder();
+            set(count.difficulty(), builder::setDifficulty);
+            set(count.count(), builder::setCount);
+            set(count.submissions(), builder::setSubmissions);
+            add.accept(builder.build());
+        }
+    }
+
+    // The older, flattened LeetCode view, derived from the same cached profile
+    static LeetCodeResponse toLeetCodeProto(UserProfile profile) {
+        LeetCodeResponse.Builder builder = LeetCodeResponse.newBuilder();
+        set(profile.username(), builder::setUsername);
+        set(profile.githubUrl(), builder::setGithubLink);
+        set(profile.twitterUrl(), builder::setTwitterLink);
+        set(profile.linkedinUrl(), builder::setLinkedinLink);
+
+        UserProfile.Profile details = profile.profile();
+        if (details != null) {
+            set(details.realName(), builder::setFullName);
+            set(details.userAvatar(), builder::setImageUrl);
+            set(details.userAvatar(), builder::setProfilePictureUrl);
+            set(details.ranking(), builder::setRank);
+            set(details.countryName(), builder::setCountry);
+            addStrings(details.skillTags(), builder::addSkills);
+            CommunityStats.Builder communityStats = builder.getCommunityStatsBuilder();
+            set(details.reputation(), communityStats::setReputation);
+            set(details.postViewCount(), communityStats::setViews);
+            set(details.solutionCount(), communityStats::setSolutions);
+            set(details.categoryDiscussCount(), communityStats::setDiscussCount);
+        }
+
+        if (profile.submitStats() != null) {
+            for (UserProfile.SubmissionCount count : nonNull(profile.submitStats().acSubmissionNum())) {
+                if (count.difficulty() == null) {
+                    continue;
+                }
+                switch (count.difficulty()) {
+                    case "All" -> {
+                        set(count.count(), builder::setTotalQuestions);
+                        set(count.submissions(), builder::setAcceptedSubmissions);
+                    }
+                    case "Easy" -> set(count.count(), builder::setEasySolved);
+                    case "Medium" -> set(count.count(), builder::setMediumSolved);
+                    case "Hard" -> set(count.count(), builder::setHardSolved);
+                    default -> {
+                    }
+                }
+            }
+            for (UserProfile.SubmissionCount count : nonNull(profile.submitStats().totalSubmissionNum())) {
+                if ("All".equals(count.difficulty())) {
+                    set(count.submissions(), builder::setTotalSubmissions);
+                }
+            }
+        }
+
+        if (profile.contestBadge() != null) {
+            set(profile.contestBadge().name(), builder::addBadges);
+        }
+        return builder.build();
+    }
+
+    static UserContestHistoryResponse toProto(UserContestHistory history) {
+        UserContestHistoryResponse.Builder builder = UserContestHistoryResponse.newBuilder();
+        UserContestHistory.UserContestRanking ranking = history.userContestRanking();
+        if (ranking != null) {
+            UserContestRanking.Builder rankingBuilder = builder.getUserContestRankingBuilder();
+            set(ranking.attendedContestsCount(), rankingBuilder::setAttendedContestsCount);
+            set(ranking.rating(), rankingBuilder::setRating);
+            set(ranking.globalRanking(), rankingBuilder::setGlobalRanking);
+            set(ranking.totalParticipants(), rankingBuilder::setTotalParticipants);
+            set(ranking.topPercentage(), rankingBuilder::setTopPercentage);
+            if (ranking.badge() != null) {
+                set(ranking.badge().name(), rankingBuilder.getBadgeBuilder()::setName);
+            }
+        }
+        for (UserContestHistory.ContestHistoryEntry entry : nonNull(history.userContestRankingHistory())) {
+            ContestHistoryEntry.Builder entryBuilder = builder.addUserContestRankingHistoryBuilder();
+            set(entry.attended(), entryBuilder::setAttended);
+            set(entry.trendDirection(), entryBuilder::setTrendDirection);
+            set(entry.problemsSolved(), entryBuilder::setProblemsSolved);
+            set(entry.totalProblems(), entryBuilder::setTotalProblems);
+            set(entry.finishTimeInSeconds(), entryBuilder::setFinishTimeInSeconds);
+            set(entry.rating(), entryBuilder::setRating);
+            set(entry.ranking(), entryBuilder::setRanking);
+            if (entry.contest() != null) {
+                Contest.Builder contest = entryBuilder.getContestBuilder();
+                set(entry.contest().title(), contest::setTitle);
+                set(entry.contest().startTime(), contest::setStartTime);
+            }
+        }
+        return builder.build();
+    }
+
+    static UserSubmissionsResponse toProto(List<UserSubmissions.RecentSubmission> submissions) {
+        UserSubmissionsResponse.Builder builder = UserSubmissionsResponse.newBuilder();
+        for (UserSubmissions.RecentSubmission submission : submissions) {
+            RecentSubmission.Builder submissionBuilder = builder.addSubmissionsBuilder();
+            set(submission.id(), submissionBuilder::setId);
+            set(submission.title(), submissionBuilder::setTitle);
+            set(submission.titleSlug(), submissionBuilder::setTitleSlug);
+            set(submission.timestamp(), submissionBuilder::setTimestamp);
+            set(submission.status(), submissionBuilder::setStatus);
+            set(submission.statusDisplay(), submissionBuilder::setStatusDisplay);
+            set(submission.lang(), submissionBuilder::setLang);
+            set(submission.url(), submissionBuilder::setUrl);
+            set(submission.langName(), submissionBuilder::setLangName);
+            set(submission.runtime(), submissionBuilder::setRuntime);
+            set(submission.isPending(), submissionBuilder::setIsPending);
+            set(submission.memory(), submissionBuilder::setMemory);
+            set(submission.hasNotes(), submissionBuilder::setHasNotes);
+            set(submission.notes(), submissionBuilder::setNotes);
+            set(submission.flagType(), submissionBuilder::setFlagType);
+            set(submission.frontendId(), submissionBuilder::setFrontendId);
+            for (UserSubmissions.TopicTag tag : nonNull(submission.topicTags())) {
+                set(tag.id(), submissionBuilder.addTopicTagsBuilder()::setId);
+            }
+        }
+        return builder.build();
+    }
+
+    static HackerRankResponse toProto(HackerRankProfile profile) {
+        HackerRankResponse.Builder builder = HackerRankResponse.newBuilder()
+                .setRank(profile.rank())
+                .setProblemsSolved(profile.problemsSolved());
+        set(profile.username(), builder::setUsername);
+        set(profile.fullName(), builder::setFullName);
+        set(profile.profilePictureUrl(), builder::setProfilePictureUrl);
+        addStrings(profile.badges(), builder::addBadges);
+        set(profile.bio(), builder::setBio);
+        return builder.build();
+    }
+
+    private static <T> void set(T value, Consumer<T> setter) {
+        if (value != null) {
+            setter.accept(value);
+        }
+    }
+
+    private static void addStrings(List<String> values, Consumer<String> add) {
+        for (String value : nonNull(values)) {
+            set(value, add);
+        }
+    }
+
+    private static <T> List<T> nonNull(List<T> values) {
+        return values != null ? values : List.of();
+    }
+}
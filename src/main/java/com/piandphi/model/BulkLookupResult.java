@@ -0,0 +1,19 @@
+package com.piandphi.model;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+@Serdeable.Serializable
+public record BulkLookupResult(
+        String username,
+        Status status,
+        UserProfile profile,
+        String error
+) {
+
+    public enum Status {
+        HIT,
+        FRESH,
+        FALLBACK,
+        ERROR
+    }
+}
@@ -0,0 +1,13 @@
+package com.piandphi.model;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+import java.util.List;
+
+@Serdeable.Serializable
+public record UserSnapshot(
+        UserProfile profile,
+        UserContestHistory contestHistory,
+        List<UserSubmissions.RecentSubmission> recentSubmissions
+) {
+}
@@ -0,0 +1,107 @@
+package com.piandphi.resilience;
+
+import io.micronaut.context.annotation.EachProperty;
+import io.micronaut.context.annotation.Parameter;
+
+import java.time.Duration;
+
+// Per-scraper resilience, bound from resilience.scrapers.<name> (leetcode-user-profile, leetcode-contest-history,
+// leetcode-submissions, leetcode-snapshot, hackerrank). A call makes up to max-attempts attempts, waiting an
+// exponentially growing, jittered backoff between them, and falls back once the deadline has passed, whatever
+// attempt it is on. The circuit opens at failure-rate-threshold percent failures over the last
+// sliding-window-size calls and stays open for wait-in-open-state.
+@EachProperty("resilience.scrapers")
+public class ResilienceSettings {
+
+    private final String name;
+    private int maxAttempts = 3;
+    private Duration initialBackoff = Duration.ofMillis(200);
+    private double backoffMultiplier = 2.0;
+    private Duration maxBackoff = Duration.ofSeconds(2);
+    // Each backoff is drawn from [backoff * (1 - jitter), backoff * (1 + jitter)]
+    private double jitter = 0.5;
+    private Duration deadline = Duration.ofSeconds(15);
+    private float failureRateThreshold = 50;
+    private int slidingWindowSize = 50;
+    private Duration waitInOpenState = Duration.ofSeconds(30);
+
+    public ResilienceSettings(@Parameter String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public double getBackoffMultiplier() {
+        return backoffMultiplier;
+    }
+
+    public void setBackoffMultiplier(double backoffMultiplier) {
+        this.backoffMultiplier = backoffMultiplier;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(double jitter) {
+        this.jitter = jitter;
+    }
+
+    public Duration getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(Duration deadline) {
+        this.deadline = deadline;
+    }
+
+    public float getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(float failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public Duration getWaitInOpenState() {
+        return waitInOpenState;
+    }
+
+    public void setWaitInOpenState(Duration waitInOpenState) {
+        this.waitInOpenState = waitInOpenState;
+    }
+}
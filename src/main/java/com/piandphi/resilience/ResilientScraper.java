@@ -1,30 +1,159 @@
 package com.piandphi.resilience;
 
+import com.piandphi.upstream.UpstreamThrottledException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
-import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
 
+// Circuit breaker plus retries with jittered exponential backoff under one deadline per call (see
+// ResilienceSettings), falling back once attempts, retryable errors or time run out. The async variant waits out
+// backoffs on the scheduler, so no thread is parked between attempts; the blocking one waits for each attempt
+// only as long as the deadline leaves. The result variants tell a fallback for a
+// failed scrape from one for a user the upstream reported as nonexistent.
 public class ResilientScraper<T> {
 
+    private static final Logger LOG = LoggerFactory.getLogger(ResilientScraper.class);
+
+    private final String name;
+    private final ResilienceSettings settings;
     private final CircuitBreaker circuitBreaker;
-    private final Retry retry;
+    private final ScheduledExecutorService scheduler;
+    // Runs the attempts of the blocking variant, so the caller can stop waiting for one at the deadline
+    private final Executor attemptExecutor;
+
+    public ResilientScraper(String name, ResilienceSettings settings, ScheduledExecutorService scheduler, Executor attemptExecutor) {
+        this.name = name;
+        this.settings = settings;
+        this.scheduler = scheduler;
+        this.attemptExecutor = attemptExecutor;
+        this.circuitBreaker = CircuitBreaker.of(name, CircuitBreakerConfig.custom()
+                .failureRateThreshold(settings.getFailureRateThreshold())
+                .slidingWindowSize(settings.getSlidingWindowSize())
+                .minimumNumberOfCalls(Math.min(settings.getSlidingWindowSize(), 10))
+                .waitDurationInOpenState(settings.getWaitInOpenState())
+                // Junk usernames say nothing about the upstream's health
+                .ignoreException(UserNotFoundException::causedBy)
+                .build());
+    }
+
+    // Blocking variant for callers already on a scrape thread (virtual threads or the BLOCKING pool): backoffs
+    // are waited out on that thread, which a virtual thread does without holding a carrier. An attempt still
+    // running at the deadline is left to finish on its own and the caller gets the fallback.
+    public ScrapeResult<T> executeForResult(Supplier<T> scraperCall, Supplier<T> fallback) {
+        long deadline = System.nanoTime() + settings.getDeadline().toNanos();
+        for (int attempt = 1; ; attempt++) {
+            CompletableFuture<T> call = CompletableFuture.supplyAsync(() -> circuitBreaker.executeSupplier(scraperCall), attemptExecutor);
+            Throwable cause;
+            try {
+                return ScrapeResult.fresh(call.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                return fallback(e, fallback);
+            } catch (ExecutionException e) {
+                cause = unwrap(e.getCause());
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                return ScrapeResult.fallback(fallback.get());
+            }
+            long backoff = nextBackoff(attempt, cause, deadline);
+            if (backoff < 0) {
+                return fallback(cause, fallback);
+            }
+            LOG.debug("Scraper {} attempt {} failed, retrying in {} ms: {}", name, attempt, backoff, cause.getMessage());
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.min(TimeUnit.MILLISECONDS.toNanos(backoff), deadline - System.nanoTime()));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                return ScrapeResult.fallback(fallback.get());
+            }
+        }
+    }
+
+    // Non-blocking variant for scrapes that return a future
+    public CompletableFuture<ScrapeResult<T>> executeAsyncForResult(Supplier<CompletionStage<T>> scraperCall, Supplier<T> fallback) {
+        if (scheduler == null) {
+            throw new IllegalStateException("No retry scheduler configured for async execution");
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(scraperCall, 1, System.nanoTime() + settings.getDeadline().toNanos(), result);
 
-    public ResilientScraper(String name) {
-        this.circuitBreaker = CircuitBreaker.ofDefaults(name);
-        this.retry = Retry.ofDefaults(name);
+        return result
+                .orTimeout(settings.getDeadline().toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(ScrapeResult::fresh)
+                .exceptionally(e -> fallback(unwrap(e), fallback));
     }
 
-    public T execute(Supplier<T> scraperCall, Supplier<T> fallback) {
-        Supplier<T> decorated = Retry.decorateSupplier(retry,
-                CircuitBreaker.decorateSupplier(circuitBreaker, scraperCall)
-        );
+    private ScrapeResult<T> fallback(Throwable cause, Supplier<T> fallback) {
+        if (UserNotFoundException.causedBy(cause)) {
+            LOG.debug("Scraper {}: user not found", name);
+            return ScrapeResult.notFound(fallback.get());
+        }
+        LOG.warn("Scraper {} fallback triggered: {}", name, cause instanceof TimeoutException
+                ? "deadline of " + settings.getDeadline().toMillis() + " ms exceeded"
+                : cause.getMessage());
+        return ScrapeResult.fallback(fallback.get());
+    }
 
+    private void attempt(Supplier<CompletionStage<T>> scraperCall, int attempt, long deadline, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            return;
+        }
+        CompletionStage<T> stage;
         try {
-            return decorated.get();
+            stage = circuitBreaker.executeCompletionStage(scraperCall);
         } catch (Exception e) {
-            System.err.println("ResilientScraper fallback triggered: " + e.getMessage());
-            return fallback.get();
+            stage = CompletableFuture.failedFuture(e);
         }
+        stage.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            long backoff = nextBackoff(attempt, cause, deadline);
+            if (backoff < 0) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            LOG.debug("Scraper {} attempt {} failed, retrying in {} ms: {}", name, attempt, backoff, cause.getMessage());
+            scheduler.schedule(() -> attempt(scraperCall, attempt + 1, deadline, result), backoff, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    // Milliseconds to wait before the next attempt, or -1 to give up: out of attempts, not worth retrying, or the
+    // next attempt would only start after the deadline
+    private long nextBackoff(int attempt, Throwable cause, long deadline) {
+        if (attempt >= settings.getMaxAttempts() || !isRetryable(cause)) {
+            return -1;
+        }
+        double backoff = Math.min(settings.getMaxBackoff().toMillis(),
+                settings.getInitialBackoff().toMillis() * Math.pow(settings.getBackoffMultiplier(), attempt - 1));
+        double jitter = Math.max(0, Math.min(1, settings.getJitter()));
+        long delay = (long) (backoff * (1 - jitter + ThreadLocalRandom.current().nextDouble() * 2 * jitter));
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay) < deadline ? delay : -1;
+    }
+
+    // An open circuit, a full rate limit or a missing user will not be different a moment later
+    private static boolean isRetryable(Throwable cause) {
+        if (cause instanceof CallNotPermittedException || cause instanceof UpstreamThrottledException) {
+            return false;
+        }
+        return !UserNotFoundException.causedBy(cause);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 }
@@ -0,0 +1,35 @@
+package com.piandphi.resilience;
+
+import com.piandphi.execution.ScrapeExecutor;
+import io.micronaut.scheduling.TaskExecutors;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+// Builds ResilientScrapers from their resilience.scrapers.<name> settings, sharing one scheduler for backoffs and
+// the scrape executor for blocking attempts
+@Singleton
+public class ResilientScrapers {
+
+    private final List<ResilienceSettings> settings;
+    private final ScheduledExecutorService scheduler;
+    private final ScrapeExecutor scrapeExecutor;
+
+    public ResilientScrapers(List<ResilienceSettings> settings,
+                             @Named(TaskExecutors.SCHEDULED) ScheduledExecutorService scheduler,
+                             ScrapeExecutor scrapeExecutor) {
+        this.settings = settings;
+        this.scheduler = scheduler;
+        this.scrapeExecutor = scrapeExecutor;
+    }
+
+    public <T> ResilientScraper<T> create(String name) {
+        ResilienceSettings scraperSettings = settings.stream()
+                .filter(candidate -> candidate.getName().equals(name))
+                .findFirst()
+                .orElseGet(() -> new ResilienceSettings(name));
+        return new ResilientScraper<>(name, scraperSettings, scheduler, scrapeExecutor);
+    }
+}
@@ -0,0 +1,38 @@
+package com.piandphi.resilience;
+
+import java.util.function.Function;
+
+// A scraped value together with how it was obtained, so callers can tell real data from a fallback. A user the
+// upstream reported as nonexistent is NOT_FOUND; its value is the fallback.
+public record ScrapeResult<T>(T value, Outcome outcome) {
+
+    public enum Outcome {
+        FRESH,
+        FALLBACK,
+        NOT_FOUND
+    }
+
+    public static <T> ScrapeResult<T> fresh(T value) {
+        return new ScrapeResult<>(value, Outcome.FRESH);
+    }
+
+    public static <T> ScrapeResult<T> fallback(T value) {
+        return new ScrapeResult<>(value, Outcome.FALLBACK);
+    }
+
+    public static <T> ScrapeResult<T> notFound(T value) {
+        return new ScrapeResult<>(value, Outcome.NOT_FOUND);
+    }
+
+    public boolean isFallback() {
+        return outcome == Outcome.FALLBACK;
+    }
+
+    public boolean isNotFound() {
+        return outcome == Outcome.NOT_FOUND;
+    }
+
+    public <R> ScrapeResult<R> map(Function<T, R> mapper) {
+        return new ScrapeResult<>(mapper.apply(value), outcome);
+    }
+}
@@ -0,0 +1,26 @@
+package com.piandphi.resilience;
+
+import java.io.IOException;
+
+// Thrown by a scraper when the platform itself reports the user as nonexistent. ResilientScraper answers it with a
+// not-found result instead of retrying it or counting it against the circuit breaker.
+public class UserNotFoundException extends IOException {
+
+    public UserNotFoundException(String message) {
+        super(message);
+    }
+
+    public UserNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    // Anywhere in the cause chain, since the fetch paths and futures wrap it on the way out
+    public static boolean causedBy(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UserNotFoundException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,115 @@
+package com.piandphi.scraper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Collects single-key requests for a short window (or until the batch is full) and sends them upstream as one
+// request, then hands each waiting caller its own result or its own failure. A key the batch result says nothing
+// about fails with a retryable IOException.
+final class GraphQLBatcher<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GraphQLBatcher.class);
+
+    private final String name;
+    private final int maxBatchSize;
+    private final Duration window;
+    private final ScheduledExecutorService scheduler;
+    private final Function<List<String>, CompletableFuture<BatchResult<T>>> batchFetcher;
+
+    private List<Pending<T>> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    GraphQLBatcher(String name, int maxBatchSize, Duration window, ScheduledExecutorService scheduler,
+                   Function<List<String>, CompletableFuture<BatchResult<T>>> batchFetcher) {
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.window = window;
+        this.scheduler = scheduler;
+        this.batchFetcher = batchFetcher;
+    }
+
+    CompletableFuture<T> submit(String key) {
+        Pending<T> request = new Pending<>(key, new CompletableFuture<>());
+        List<Pending<T>> fullBatch = null;
+
+        synchronized (this) {
+            pending.add(request);
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = drain();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::flush, window.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (fullBatch != null) {
+            send(fullBatch);
+        }
+        return request.result();
+    }
+
+    private void flush() {
+        List<Pending<T>> batch;
+        synchronized (this) {
+            batch = drain();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    // Caller must hold the lock
+    private List<Pending<T>> drain() {
+        List<Pending<T>> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void send(List<Pending<T>> batch) {
+        List<String> keys = new ArrayList<>(new LinkedHashSet<>(batch.stream().map(Pending::key).toList()));
+        LOG.debug("Sending {} batch of {} keys ({} waiting callers)", name, keys.size(), batch.size());
+
+        CompletableFuture<BatchResult<T>> response;
+        try {
+            response = batchFetcher.apply(keys);
+        } catch (Throwable t) {
+            response = CompletableFuture.failedFuture(t);
+        }
+
+        response.whenComplete((results, error) -> {
+            for (Pending<T> request : batch) {
+                if (error != null) {
+                    request.result().completeExceptionally(error);
+                } else if (results.values().get(request.key()) != null) {
+                    request.result().complete(results.values().get(request.key()));
+                } else if (results.failures().get(request.key()) != null) {
+                    request.result().completeExceptionally(results.failures().get(request.key()));
+                } else {
+                    request.result().completeExceptionally(new IOException("No result for " + request.key() + " in " + name + " batch"));
+                }
+            }
+        });
+    }
+
+    private record Pending<T>(String key, CompletableFuture<T> result) {
+    }
+
+    // values and failures by key; a key is in at most one of them
+    record BatchResult<T>(Map<String, T> values, Map<String, IOException> failures) {
+    }
+}
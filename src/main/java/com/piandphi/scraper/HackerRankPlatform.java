@@ -0,0 +1,36 @@
+package com.piandphi.scraper;
+
+import com.piandphi.service.EncodedResponse;
+import com.piandphi.service.ProfileCacheService;
+import jakarta.inject.Singleton;
+
+import java.util.concurrent.CompletableFuture;
+
+// HackerRank profiles for ScraperRouter, through the same cache as /hackerrank/{username}
+@Singleton
+public class HackerRankPlatform implements PlatformScraper {
+
+    private final HackerRankScraper hackerRankScraper;
+    private final ProfileCacheService cacheService;
+
+    public HackerRankPlatform(HackerRankScraper hackerRankScraper, ProfileCacheService cacheService) {
+        this.hackerRankScraper = hackerRankScraper;
+        this.cacheService = cacheService;
+    }
+
+    @Override
+    public String platform() {
+        return ScraperRouter.HACKERRANK;
+    }
+
+    @Override
+    public EncodedResponse cachedProfile(String username) {
+        return cacheService.peekHackerRankProfileResponse(username);
+    }
+
+    // Each scrape attempt runs on the scrape executor; the caller only holds a future
+    @Override
+    public CompletableFuture<EncodedResponse> fetchProfile(String username) {
+        return cacheService.getOrLoadHackerRankProfileResponseAsync(username, () -> hackerRankScraper.scrapeResultAsync(username));
+    }
+}
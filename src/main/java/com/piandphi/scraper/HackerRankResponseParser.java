@@ -0,0 +1,189 @@
+package com.piandphi.scraper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streaming parser for HackerRank's REST JSON: the hacker profile, the badge list and the per-track scores.
+// Only the handful of fields the profile needs are read; everything else is skipped token by token.
+final class HackerRankResponseParser {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private HackerRankResponseParser() {
+    }
+
+    record ProfileFields(String fullName, String avatar, String bio) {
+    }
+
+    record Badges(List<String> names, int solved) {
+    }
+
+    // /rest/contests/master/hackers/{username}/profile: {"model": {...}}
+    static ProfileFields parseProfile(String responseBody) throws IOException {
+        ProfileFields fields = null;
+        try (JsonParser parser = FACTORY.createParser(responseBody)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT, "profile");
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("model".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    fields = readProfileModel(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (fields == null) {
+            throw new IOException("HackerRank profile response has no model");
+        }
+        return fields;
+    }
+
+    private static ProfileFields readProfileModel(JsonParser parser) throws IOException {
+        String name = null;
+        String firstName = null;
+        String lastName = null;
+        String avatar = null;
+        String shortBio = null;
+        String about = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "name" -> name = text(parser);
+                case "personal_first_name" -> firstName = text(parser);
+                case "personal_last_name" -> lastName = text(parser);
+                case "avatar" -> avatar = text(parser);
+                case "short_bio" -> shortBio = text(parser);
+                case "about" -> about = text(parser);
+                default -> parser.skipChildren();
+            }
+        }
+
+        String fullName = !isBlank(name) ? name : (orEmpty(firstName) + " " + orEmpty(lastName)).trim();
+        String bio = !isBlank(shortBio) ? shortBio : orEmpty(about);
+        return new ProfileFields(fullName, orEmpty(avatar), bio);
+    }
+
+    // /rest/hackers/{username}/badges: {"models": [{"badge_name": ..., "stars": n, "solved": n}, ...]}
+    static Badges parseBadges(String responseBody) throws IOException {
+        List<String> names = new ArrayList<>();
+        int solved = 0;
+        try (JsonParser parser = FACTORY.createParser(responseBody)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT, "badges");
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if (!"models".equals(field) || parser.currentToken() != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.currentToken() != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    String name = null;
+                    int stars = 0;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String badgeField = parser.currentName();
+                        parser.nextToken();
+                        switch (badgeField) {
+                            case "badge_name" -> name = text(parser);
+                            case "stars" -> stars = integer(parser);
+                            case "solved" -> solved += integer(parser);
+                            default -> parser.skipChildren();
+                        }
+                    }
+                    if (!isBlank(name)) {
+                        names.add(stars > 0 ? name + " (" + stars + (stars == 1 ? " star)" : " stars)") : name);
+                    }
+                }
+            }
+        }
+        return new Badges(names, solved);
+    }
+
+    // /rest/hackers/{username}/scores_elo: [{"slug": ..., "practice": {"rank": n, "score": x}, "contest": {...}}, ...]
+    // The profile rank is the best (lowest) practice rank across tracks, 0 when the user is unranked everywhere.
+    static int parseBestRank(String responseBody) throws IOException {
+        int best = 0;
+        try (JsonParser parser = FACTORY.createParser(responseBody)) {
+            expect(parser.nextToken(), JsonToken.START_ARRAY, "scores");
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if ("practice".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                        int rank = readRank(parser);
+                        if (rank > 0 && (best == 0 || rank < best)) {
+                            best = rank;
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int readRank(JsonParser parser) throws IOException {
+        int rank = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("rank".equals(field)) {
+                rank = integer(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return rank;
+    }
+
+    private static void expect(JsonToken token, JsonToken expected, String what) throws IOException {
+        if (token != expected) {
+            throw new IOException("Unexpected HackerRank " + what + " response: " + token);
+        }
+    }
+
+    private static String text(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+
+    // Numbers and numeric text; anything else counts as 0
+    private static int integer(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return 0;
+        }
+        return parser.getValueAsInt(0);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
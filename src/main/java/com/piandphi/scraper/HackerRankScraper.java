@@ -1,39 +1,152 @@
 package com.piandphi.scraper;
 
+import com.piandphi.browser.BrowserPool;
+import com.piandphi.execution.ScrapeExecutor;
 import com.piandphi.model.HackerRankProfile;
 import com.piandphi.resilience.ResilientScraper;
+import com.piandphi.resilience.ResilientScrapers;
+import com.piandphi.resilience.ScrapeResult;
+import com.piandphi.resilience.UserNotFoundException;
+import com.piandphi.upstream.UpstreamHttpClient;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
 import jakarta.inject.Singleton;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.select.Elements;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+// Reads HackerRank's REST JSON (profile, badges and per-track scores, fetched in parallel) with a streaming
+// parser. The profile page HTML is only downloaded and DOM-parsed when the JSON profile cannot be read, and
+// only rendered in a pooled browser (when browser-pool.enabled) if the static fetches leave fields empty.
 @Singleton
 public class HackerRankScraper {
 
-    private final ResilientScraper<HackerRankProfile> resilient = new ResilientScraper<>("hackerrank");
-
-    public HackerRankProfile scrape(String username) {
-        return resilient.execute(
-                () -> {
-                    try {
-                        return fetchProfile(username);
-                    } catch (IOException e) {
-                        return fallbackProfile(username);
-                    }
-                },
-                () -> fallbackProfile(username)
-        );
+    private static final Logger LOG = LoggerFactory.getLogger(HackerRankScraper.class);
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36";
+    private static final String BASE_URL = "https://www.hackerrank.com";
+    private static final String FULL_NAME_SELECTOR = "h1.hr-heading-02.profile-title.ellipsis";
+    private static final String AVATAR_SELECTOR = "img.hr-m-t-0\\.25";
+
+    private final ResilientScraper<HackerRankProfile> resilient;
+
+    private final UpstreamHttpClient upstreamHttpClient;
+    private final BrowserPool browserPool;
+    private final ScrapeExecutor scrapeExecutor;
+
+    public HackerRankScraper(UpstreamHttpClient upstreamHttpClient,
+                             ResilientScrapers resilientScrapers,
+                             ScrapeExecutor scrapeExecutor,
+                             @Nullable BrowserPool browserPool,
+                             @Value("${hackerrank.render-missing-fields:true}") boolean renderMissingFields) {
+        this.upstreamHttpClient = upstreamHttpClient;
+        this.resilient = resilientScrapers.create("hackerrank");
+        this.scrapeExecutor = scrapeExecutor;
+        this.browserPool = renderMissingFields ? browserPool : null;
+    }
+
+    // A failed attempt propagates so it is retried, then reported as a fallback or, for a user HackerRank does
+    // not know, as not found
+    public ScrapeResult<HackerRankProfile> scrapeResult(String username) {
+        return resilient.executeForResult(() -> scrapeOnce(username), () -> fallbackProfile(username));
+    }
+
+    // Each attempt blocks (HTML fallback, browser rendering), so it runs on the scrape executor; the backoffs
+    // between attempts are scheduled and hold no thread
+    public CompletableFuture<ScrapeResult<HackerRankProfile>> scrapeResultAsync(String username) {
+        return resilient.executeAsyncForResult(() -> scrapeExecutor.supply(() -> scrapeOnce(username)), () -> fallbackProfile(username));
+    }
+
+    private HackerRankProfile scrapeOnce(String username) {
+        try {
+            return withRenderedFields(fetchProfile(username));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     private HackerRankProfile fetchProfile(String username) throws IOException {
-        String url = "https://www.hackerrank.com/profile/" + username;
-        Document doc = Jsoup.connect(url).get();
+        CompletableFuture<HttpResponse<String>> profile = fetchJson("/rest/contests/master/hackers/" + username + "/profile");
+        CompletableFuture<HttpResponse<String>> badges = fetchJson("/rest/hackers/" + username + "/badges");
+        CompletableFuture<HttpResponse<String>> scores = fetchJson("/rest/hackers/" + username + "/scores_elo");
+
+        HackerRankResponseParser.ProfileFields fields;
+        try {
+            fields = HackerRankResponseParser.parseProfile(body(profile));
+        } catch (IOException e) {
+            badges.cancel(true);
+            scores.cancel(true);
+            if (e.getCause() instanceof HttpClientResponseException notFound && notFound.getStatus() == HttpStatus.NOT_FOUND) {
+                throw new UserNotFoundException("User not found: " + username, e);
+            }
+            LOG.warn("HackerRank JSON profile unavailable for {}, falling back to the profile page: {}", username, e.getMessage());
+            return fetchProfileFromHtml(username);
+        }
+
+        // Badges and ranks are extras: a failure there still returns the profile
+        HackerRankResponseParser.Badges badgeList = new HackerRankResponseParser.Badges(List.of(), 0);
+        try {
+            badgeList = HackerRankResponseParser.parseBadges(body(badges));
+        } catch (IOException e) {
+            LOG.debug("HackerRank badges unavailable for {}: {}", username, e.getMessage());
+        }
+        int rank = 0;
+        try {
+            rank = HackerRankResponseParser.parseBestRank(body(scores));
+        } catch (IOException e) {
+            LOG.debug("HackerRank scores unavailable for {}: {}", username, e.getMessage());
+        }
+
+        return new HackerRankProfile(
+                username,
+                fields.fullName(),
+                rank,
+                badgeList.solved(),
+                fields.avatar(),
+                badgeList.names(),
+                fields.bio()
+        );
+    }
+
+    private CompletableFuture<HttpResponse<String>> fetchJson(String path) {
+        var request = HttpRequest.GET(path)
+                .header("User-Agent", USER_AGENT)
+                .header("Accept", "application/json");
+        return upstreamHttpClient.exchangeAsync(UpstreamHttpClient.HACKERRANK, request);
+    }
+
+    // Waits for one of the parallel requests; any failure, including an error status, surfaces as IOException
+    private static String body(CompletableFuture<HttpResponse<String>> response) throws IOException {
+        try {
+            return response.join().getBody().orElseThrow(() -> new IOException("Empty response body"));
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private HackerRankProfile fetchProfileFromHtml(String username) throws IOException {
+        String path = "/profile/" + username;
+        var request = HttpRequest.GET(path)
+                .header("User-Agent", USER_AGENT)
+                .header("Accept", "text/html");
+
+        var response = upstreamHttpClient.exchange(UpstreamHttpClient.HACKERRANK, request);
+        String html = response.getBody().orElseThrow(() -> new IOException("Empty HackerRank profile page for " + username));
+        Document doc = Jsoup.parse(html, BASE_URL + path);
 
-        String fullName = doc.select("h1.hr-heading-02.profile-title.ellipsis").text();
-        String profilePictureUrl = doc.select("img.hr-m-t-0\\.25").attr("src");
+        String fullName = doc.select(FULL_NAME_SELECTOR).text();
+        String profilePictureUrl = doc.select(AVATAR_SELECTOR).attr("src");
 
         return new HackerRankProfile(
                 username,
@@ -46,6 +159,34 @@ public class HackerRankScraper {
         );
     }
 
+    // Some profiles only get their name and avatar client-side. The page is then rendered once in a pooled
+    // browser and just the missing fields are taken from it; a failed render keeps the static result.
+    private HackerRankProfile withRenderedFields(HackerRankProfile profile) {
+        if (browserPool == null || !(isBlank(profile.fullName()) || isBlank(profile.profilePictureUrl()))) {
+            return profile;
+        }
+        String url = BASE_URL + "/profile/" + profile.username();
+        try {
+            Document doc = Jsoup.parse(browserPool.render(url), url);
+            return new HackerRankProfile(
+                    profile.username(),
+                    isBlank(profile.fullName()) ? doc.select(FULL_NAME_SELECTOR).text() : profile.fullName(),
+                    profile.rank(),
+                    profile.problemsSolved(),
+                    isBlank(profile.profilePictureUrl()) ? doc.select(AVATAR_SELECTOR).attr("src") : profile.profilePictureUrl(),
+                    profile.badges(),
+                    profile.bio()
+            );
+        } catch (RuntimeException e) {
+            LOG.warn("Could not render HackerRank profile page for {}: {}", profile.username(), e.getMessage());
+            return profile;
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
     private HackerRankProfile fallbackProfile(String username) {
         return new HackerRankProfile(
                 username,
@@ -57,12 +198,4 @@ public class HackerRankScraper {
                 "Fallback profile due to scraping failure"
         );
     }
-
-    private int parseInt(String text) {
-        try {
-            return Integer.parseInt(text.replaceAll("\\D", ""));
-        } catch (NumberFormatException e) {
-            return 0;
-        }
-    }
 }
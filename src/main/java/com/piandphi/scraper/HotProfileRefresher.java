@@ -0,0 +1,96 @@
+package com.piandphi.scraper;
+
+import com.piandphi.service.ProfileCacheService;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+// Keeps the most requested profiles warm. Every interval the top-k most requested keys of each cache whose
+// entry expires within the window are re-scraped in the background, most requested first, for as long as the
+// upstream budget lasts. The budget accrues at requests-per-minute (a HackerRank profile costs three requests)
+// and keys that do not fit wait for the next round. Everything outside the top-k simply expires. Re-scrapes go
+// through the platform's bulkhead like any other fetch, so a refresh burst cannot crowd out request traffic.
+@Singleton
+@Requires(property = "profile-cache.pre-refresh.enabled", notEquals = "false")
+public class HotProfileRefresher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HotProfileRefresher.class);
+    private static final int HACKERRANK_REQUESTS = 3;
+
+    private final ProfileCacheService cacheService;
+    private final LeetCodeScraper leetCodeScraper;
+    private final HackerRankScraper hackerRankScraper;
+    private final ScraperRouter scraperRouter;
+    private final int topK;
+    private final Duration window;
+    private final double requestsPerMinute;
+
+    // Only touched by the scheduled round, which never overlaps itself
+    private double budget;
+    private long lastRound = System.nanoTime();
+
+    public HotProfileRefresher(ProfileCacheService cacheService, LeetCodeScraper leetCodeScraper,
+                               HackerRankScraper hackerRankScraper, ScraperRouter scraperRouter,
+                               @Value("${profile-cache.pre-refresh.top-k:100}") int topK,
+                               @Value("${profile-cache.pre-refresh.window:10m}") Duration window,
+                               @Value("${profile-cache.pre-refresh.requests-per-minute:60}") double requestsPerMinute) {
+        this.cacheService = cacheService;
+        this.leetCodeScraper = leetCodeScraper;
+        this.hackerRankScraper = hackerRankScraper;
+        this.scraperRouter = scraperRouter;
+        this.topK = topK;
+        this.window = window;
+        this.requestsPerMinute = requestsPerMinute;
+    }
+
+    @Scheduled(fixedDelay = "${profile-cache.pre-refresh.interval:30s}", initialDelay = "${profile-cache.pre-refresh.interval:30s}")
+    void refreshHotProfiles() {
+        long now = System.nanoTime();
+        budget = Math.min(requestsPerMinute, budget + requestsPerMinute * (now - lastRound) / 60e9);
+        lastRound = now;
+
+        List<ProfileCacheService.HotKey> hot = cacheService.hotKeysExpiringWithin(topK, window);
+        int started = 0;
+        int deferred = 0;
+        for (ProfileCacheService.HotKey key : hot) {
+            int cost = key.kind() == ProfileCacheService.CacheKind.HACKERRANK_PROFILE ? HACKERRANK_REQUESTS : 1;
+            if (budget < cost) {
+                deferred++;
+                continue;
+            }
+            if (refresh(key)) {
+                budget -= cost;
+                started++;
+            }
+        }
+        cacheService.decayPopularity();
+
+        if (started > 0 || deferred > 0) {
+            LOG.info("Pre-refreshing {} hot cache entries, {} deferred by the upstream budget", started, deferred);
+        }
+    }
+
+    private boolean refresh(ProfileCacheService.HotKey key) {
+        String username = key.username();
+        return switch (key.kind()) {
+            case USER_PROFILE -> cacheService.preRefreshUserProfile(username,
+                    () -> scraperRouter.isolate(ScraperRouter.LEETCODE,
+                            () -> leetCodeScraper.scrapeUserProfileResultAsync(username)));
+            case CONTEST_HISTORY -> cacheService.preRefreshContestHistory(username,
+                    () -> scraperRouter.isolate(ScraperRouter.LEETCODE,
+                            () -> leetCodeScraper.scrapeContestHistoryResultAsync(username)));
+            case SUBMISSIONS -> cacheService.preRefreshSubmissions(username,
+                    fetchLimit -> scraperRouter.isolate(ScraperRouter.LEETCODE,
+                            () -> leetCodeScraper.scrapeRecentSubmissionsResultAsync(username, fetchLimit)));
+            case HACKERRANK_PROFILE -> cacheService.preRefreshHackerRankProfile(username,
+                    () -> scraperRouter.isolate(ScraperRouter.HACKERRANK,
+                            () -> hackerRankScraper.scrapeResultAsync(username)));
+        };
+    }
+}
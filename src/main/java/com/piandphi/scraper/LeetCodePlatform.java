@@ -0,0 +1,35 @@
+package com.piandphi.scraper;
+
+import com.piandphi.service.EncodedResponse;
+import com.piandphi.service.ProfileCacheService;
+import jakarta.inject.Singleton;
+
+import java.util.concurrent.CompletableFuture;
+
+// LeetCode user profiles for ScraperRouter, through the same cache as /leetcode/user/{username}
+@Singleton
+public class LeetCodePlatform implements PlatformScraper {
+
+    private final LeetCodeScraper leetCodeScraper;
+    private final ProfileCacheService cacheService;
+
+    public LeetCodePlatform(LeetCodeScraper leetCodeScraper, ProfileCacheService cacheService) {
+        this.leetCodeScraper = leetCodeScraper;
+        this.cacheService = cacheService;
+    }
+
+    @Override
+    public String platform() {
+        return ScraperRouter.LEETCODE;
+    }
+
+    @Override
+    public EncodedResponse cachedProfile(String username) {
+        return cacheService.peekUserProfileResponse(username);
+    }
+
+    @Override
+    public CompletableFuture<EncodedResponse> fetchProfile(String username) {
+        return cacheService.getOrLoadUserProfileResponseAsync(username, () -> leetCodeScraper.scrapeUserProfileResultAsync(username));
+    }
+}
@@ -0,0 +1,655 @@
+package com.piandphi.scraper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.piandphi.model.UserContestHistory;
+import com.piandphi.model.UserProfile;
+import com.piandphi.model.UserSnapshot;
+import com.piandphi.model.UserSubmissions;
+import com.piandphi.resilience.UserNotFoundException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Streaming parser for LeetCode GraphQL responses. Tokens are read straight into the model records with one
+// shared, thread-safe JsonFactory, so no JsonNode tree or per-call ObjectMapper is allocated. Missing and null
+// fields map to the same values the previous tree-based parsing produced.
+final class LeetCodeResponseParser {
+
+    // Only used to read the (rare) "errors" array
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+
+    private LeetCodeResponseParser() {
+    }
+
+    static UserProfile parseUserProfile(String responseBody) throws IOException {
+        UserProfile[] user = new UserProfile[1];
+        Document document = readDocument(responseBody, (name, parser) -> {
+            if ("matchedUser".equals(name)) {
+                user[0] = readUserProfile(parser);
+            } else {
+                parser.skipChildren();
+            }
+        });
+        failOnErrors(document);
+        if (user[0] == null) {
+            throw missingUser(document);
+        }
+        return user[0];
+    }
+
+    // Aliased multi-user response: u0..uN map back to the requested usernames. Errors are matched to their alias
+    // by the first element of their path: a null alias with a "does not exist" error is a user LeetCode does not
+    // know, any other error fails just that user with a retryable IOException. The others are still returned.
+    static GraphQLBatcher.BatchResult<UserProfile> parseBatchedUserProfiles(String responseBody, List<String> usernames) throws IOException {
+        Map<String, UserProfile> result = new HashMap<>();
+        Document document = readDocument(responseBody, (name, parser) -> {
+            int index = aliasIndex(name);
+            if (index >= 0 && index < usernames.size()) {
+                UserProfile profile = readUserProfile(parser);
+                if (profile != null) {
+                    result.put(usernames.get(index), profile);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        });
+        if (!document.hasData()) {
+            throw new IOException(document.hasErrors()
+                    ? "GraphQL query returned errors: " + document.errors()
+                    : "GraphQL query returned no data");
+        }
+        Map<String, IOException> failures = new HashMap<>();
+        if (document.hasErrors()) {
+            for (JsonNode error : document.errors()) {
+                int index = aliasIndex(error.path("path").path(0).asText(""));
+                if (index < 0 || index >= usernames.size()) {
+                    continue;
+                }
+                String username = usernames.get(index);
+                result.remove(username);
+                if (isUserMissing(error, document.nullFields())) {
+                    failures.put(username, new UserNotFoundException("User not found: " + username));
+                } else if (!(failures.get(username) instanceof UserNotFoundException)) {
+                    failures.put(username, new IOException("GraphQL query returned an error for " + username + ": "
+                            + error.path("message").asText()));
+                }
+            }
+        }
+        return new GraphQLBatcher.BatchResult<>(result, failures);
+    }
+
+    static UserContestHistory parseContestHistory(String responseBody) throws IOException {
+        ContestHistoryBuilder builder = new ContestHistoryBuilder();
+        failOnErrors(readDocument(responseBody, (name, parser) -> {
+            if (!builder.accept(name, parser)) {
+                parser.skipChildren();
+            }
+        }));
+        return builder.build();
+    }
+
+    static List<UserSubmissions.RecentSubmission> parseRecentSubmissions(String responseBody) throws IOException {
+        List<UserSubmissions.RecentSubmission> result = new ArrayList<>();
+        failOnErrors(readDocument(responseBody, (name, parser) -> {
+            if ("recentSubmissionList".equals(name)) {
+                readRecentSubmissions(parser, result);
+            } else {
+                parser.skipChildren();
+            }
+        }));
+        return result;
+    }
+
+    static UserSnapshot parseSnapshot(String responseBody) throws IOException {
+        UserProfile[] user = new UserProfile[1];
+        ContestHistoryBuilder contestHistory = new ContestHistoryBuilder();
+        List<UserSubmissions.RecentSubmission> recentSubmissions = new ArrayList<>();
+        Document document = readDocument(responseBody, (name, parser) -> {
+            if ("matchedUser".equals(name)) {
+                user[0] = readUserProfile(parser);
+            } else if ("recentSubmissionList".equals(name)) {
+                readRecentSubmissions(parser, recentSubmissions);
+            } else if (!contestHistory.accept(name, parser)) {
+                parser.skipChildren();
+            }
+        });
+        failOnErrors(document);
+        if (user[0] == null) {
+            throw missingUser(document);
+        }
+        return new UserSnapshot(user[0], contestHistory.build(), recentSubmissions);
+    }
+
+    // Walks the top-level object, handing every field of "data" to the handler positioned on its value
+    private static Document readDocument(String responseBody, DataFieldHandler handler) throws IOException {
+        JsonNode errors = null;
+        boolean hasData = false;
+        Set<String> nullFields = new HashSet<>();
+
+        try (JsonParser parser = FACTORY.createParser(responseBody)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("GraphQL response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("data".equals(field) && value == JsonToken.START_OBJECT) {
+                    hasData = true;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String name = parser.currentName();
+                        if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                            nullFields.add(name);
+                        }
+                        handler.accept(name, parser);
+                    }
+                } else if ("errors".equals(field) && value == JsonToken.START_ARRAY) {
+                    errors = MAPPER.readTree(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        return new Document(hasData, errors, nullFields);
+    }
+
+    // For single-user queries. LeetCode answers an unknown username with its fields null and a "does not exist"
+    // error for them; any other error fails the query as a retryable IOException.
+    private static void failOnErrors(Document document) throws IOException {
+        if (!document.hasErrors()) {
+            return;
+        }
+        for (JsonNode error : document.errors()) {
+            if (isUserMissing(error, document.nullFields())) {
+                throw new UserNotFoundException("User not found: " + error.path("message").asText());
+            }
+        }
+        throw new IOException("GraphQL query returned errors: " + document.errors());
+    }
+
+    // The error says the user does not exist, and the field it is reported for came back null
+    private static boolean isUserMissing(JsonNode error, Set<String> nullFields) {
+        String field = error.path("path").path(0).asText(null);
+        return field != null && nullFields.contains(field)
+                && error.path("message").asText("").toLowerCase(Locale.ROOT).contains("does not exist");
+    }
+
+    // No errors, but no user either: a null matchedUser still means LeetCode has no such user
+    private static IOException missingUser(Document document) {
+        return document.nullFields().contains("matchedUser")
+                ? new UserNotFoundException("User not found")
+                : new IOException("GraphQL response has no matchedUser");
+    }
+
+    private static UserProfile readUserProfile(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+        String username = null;
+        String githubUrl = null;
+        String twitterUrl = null;
+        String linkedinUrl = null;
+        UserProfile.Profile profile = null;
+        UserProfile.SubmitStats submitStats = null;
+        UserProfile.ContestBadge contestBadge = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "username" -> username = text(parser);
+                case "githubUrl" -> githubUrl = text(parser);
+                case "twitterUrl" -> twitterUrl = text(parser);
+                case "linkedinUrl" -> linkedinUrl = text(parser);
+                case "profile" -> profile = readProfile(parser);
+                case "submitStats" -> submitStats = readSubmitStats(parser);
+                case "contestBadge" -> contestBadge = readContestBadge(parser);
+                default -> parser.skipChildren();
+            }
+        }
+
+        return new UserProfile(username, githubUrl, twitterUrl, linkedinUrl,
+                profile != null ? profile : emptyProfile(), submitStats, contestBadge);
+    }
+
+    private static UserProfile.Profile readProfile(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+        String userAvatar = null;
+        String realName = null;
+        List<String> websites = List.of();
+        String countryName = null;
+        String company = null;
+        String jobTitle = null;
+        List<String> skillTags = List.of();
+        String school = null;
+        String aboutMe = null;
+        Integer postViewCount = null;
+        Integer postViewCountDiff = null;
+        Integer reputation = null;
+        Integer ranking = null;
+        Integer reputationDiff = null;
+        Integer solutionCount = null;
+        Integer solutionCountDiff = null;
+        Integer categoryDiscussCount = null;
+        Integer categoryDiscussCountDiff = null;
+        String certificationLevel = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "userAvatar" -> userAvatar = text(parser);
+                case "realName" -> realName = text(parser);
+                case "websites" -> websites = stringList(parser);
+                case "countryName" -> countryName = text(parser);
+                case "company" -> company = text(parser);
+                case "jobTitle" -> jobTitle = text(parser);
+                case "skillTags" -> skillTags = stringList(parser);
+                case "school" -> school = text(parser);
+                case "aboutMe" -> aboutMe = text(parser);
+                case "postViewCount" -> postViewCount = integer(parser);
+                case "postViewCountDiff" -> postViewCountDiff = integer(parser);
+                case "reputation" -> reputation = integer(parser);
+                case "ranking" -> ranking = integer(parser);
+                case "reputationDiff" -> reputationDiff = integer(parser);
+                case "solutionCount" -> solutionCount = integer(parser);
+                case "solutionCountDiff" -> solutionCountDiff = integer(parser);
+                case "categoryDiscussCount" -> categoryDiscussCount = integer(parser);
+                case "categoryDiscussCountDiff" -> categoryDiscussCountDiff = integer(parser);
+                case "certificationLevel" -> certificationLevel = text(parser);
+                default -> parser.skipChildren();
+            }
+        }
+
+        return new UserProfile.Profile(userAvatar, realName, websites, countryName, company, jobTitle, skillTags,
+                school, aboutMe, postViewCount, postViewCountDiff, reputation, ranking, reputationDiff,
+                solutionCount, solutionCountDiff, categoryDiscussCount, categoryDiscussCountDiff, certificationLevel);
+    }
+
+    private static UserProfile.Profile emptyProfile() {
+        return new UserProfile.Profile(null, null, List.of(), null, null, null, List.of(), null, null,
+                null, null, null, null, null, null, null, null, null, null);
+    }
+
+    private static UserProfile.SubmitStats readSubmitStats(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+        List<UserProfile.SubmissionCount> acSubmissionNum = new ArrayList<>();
+        List<UserProfile.SubmissionCount> totalSubmissionNum = new ArrayList<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "acSubmissionNum" -> readSubmissionCounts(parser, acSubmissionNum);
+                case "totalSubmissionNum" -> readSubmissionCounts(parser, totalSubmissionNum);
+                default -> parser.skipChildren();
+            }
+        }
+        return new UserProfile.SubmitStats(acSubmissionNum, totalSubmissionNum);
+    }
+
+    private static void readSubmissionCounts(JsonParser parser, List<UserProfile.SubmissionCount> result) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (!startObject(parser)) {
+                continue;
+            }
+            String difficulty = null;
+            Integer count = null;
+            Integer submissions = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "difficulty" -> difficulty = text(parser);
+                    case "count" -> count = strictInteger(parser);
+                    case "submissions" -> submissions = strictInteger(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (difficulty != null) {
+                result.add(new UserProfile.SubmissionCount(difficulty, count, submissions));
+            }
+        }
+    }
+
+    private static UserProfile.ContestBadge readContestBadge(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+        String name = null;
+        Boolean expired = null;
+        String hoverText = null;
+        String icon = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "name" -> name = text(parser);
+                case "expired" -> expired = bool(parser);
+                case "hoverText" -> hoverText = text(parser);
+                case "icon" -> icon = text(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new UserProfile.ContestBadge(name, expired, hoverText, icon);
+    }
+
+    // userContestRanking and userContestRankingHistory are sibling fields of "data"
+    private static final class ContestHistoryBuilder {
+        private UserContestHistory.UserContestRanking ranking;
+        private final List<UserContestHistory.ContestHistoryEntry> history = new ArrayList<>();
+
+        boolean accept(String name, JsonParser parser) throws IOException {
+            if ("userContestRanking".equals(name)) {
+                ranking = readContestRanking(parser);
+                return true;
+            }
+            if ("userContestRankingHistory".equals(name)) {
+                readContestHistoryEntries(parser, history);
+                return true;
+            }
+            return false;
+        }
+
+        UserContestHistory build() {
+            return new UserContestHistory(ranking, history);
+        }
+    }
+
+    private static UserContestHistory.UserContestRanking readContestRanking(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+        Integer attendedContestsCount = null;
+        Double rating = null;
+        Integer globalRanking = null;
+        Integer totalParticipants = null;
+        Double topPercentage = null;
+        UserContestHistory.Badge badge = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "attendedContestsCount" -> attendedContestsCount = integer(parser);
+                case "rating" -> rating = decimal(parser);
+                case "globalRanking" -> globalRanking = integer(parser);
+                case "totalParticipants" -> totalParticipants = integer(parser);
+                case "topPercentage" -> topPercentage = decimal(parser);
+                case "badge" -> badge = readBadge(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new UserContestHistory.UserContestRanking(attendedContestsCount, rating, globalRanking,
+                totalParticipants, topPercentage, badge);
+    }
+
+    private static UserContestHistory.Badge readBadge(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+        String name = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("name".equals(field)) {
+                name = text(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new UserContestHistory.Badge(name);
+    }
+
+    private static void readContestHistoryEntries(JsonParser parser, List<UserContestHistory.ContestHistoryEntry> result) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            Boolean attended = null;
+            String trendDirection = null;
+            Integer problemsSolved = null;
+            Integer totalProblems = null;
+            Integer finishTimeInSeconds = null;
+            Double rating = null;
+            Integer ranking = null;
+            UserContestHistory.Contest contest = null;
+
+            if (startObject(parser)) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    switch (name) {
+                        case "attended" -> attended = bool(parser);
+                        case "trendDirection" -> trendDirection = text(parser);
+                        case "problemsSolved" -> problemsSolved = integer(parser);
+                        case "totalProblems" -> totalProblems = integer(parser);
+                        case "finishTimeInSeconds" -> finishTimeInSeconds = integer(parser);
+                        case "rating" -> rating = decimal(parser);
+                        case "ranking" -> ranking = integer(parser);
+                        case "contest" -> contest = readContest(parser);
+                        default -> parser.skipChildren();
+                    }
+                }
+            }
+            result.add(new UserContestHistory.ContestHistoryEntry(attended, trendDirection, problemsSolved,
+                    totalProblems, finishTimeInSeconds, rating, ranking, contest));
+        }
+    }
+
+    private static UserContestHistory.Contest readContest(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+        String title = null;
+        String startTime = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "title" -> title = text(parser);
+                case "startTime" -> startTime = text(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new UserContestHistory.Contest(title, startTime);
+    }
+
+    private static void readRecentSubmissions(JsonParser parser, List<UserSubmissions.RecentSubmission> result) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String id = null;
+            String title = null;
+            String titleSlug = null;
+            String timestamp = null;
+            String status = null;
+            String statusDisplay = null;
+            String lang = null;
+            String url = null;
+            String langName = null;
+            String runtime = null;
+            Boolean isPending = null;
+            String memory = null;
+            Boolean hasNotes = null;
+            String notes = null;
+            String flagType = null;
+            String frontendId = null;
+            List<UserSubmissions.TopicTag> topicTags = new ArrayList<>();
+
+            if (startObject(parser)) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    switch (name) {
+                        case "id" -> id = text(parser);
+                        case "title" -> title = text(parser);
+                        case "titleSlug" -> titleSlug = text(parser);
+                        case "timestamp" -> timestamp = text(parser);
+                        case "status" -> status = text(parser);
+                        case "statusDisplay" -> statusDisplay = text(parser);
+                        case "lang" -> lang = text(parser);
+                        case "url" -> url = text(parser);
+                        case "langName" -> langName = text(parser);
+                        case "runtime" -> runtime = text(parser);
+                        case "isPending" -> isPending = bool(parser);
+                        case "memory" -> memory = text(parser);
+                        case "hasNotes" -> hasNotes = bool(parser);
+                        case "notes" -> notes = text(parser);
+                        case "flagType" -> flagType = text(parser);
+                        case "frontendId" -> frontendId = text(parser);
+                        case "topicTags" -> readTopicTags(parser, topicTags);
+                        default -> parser.skipChildren();
+                    }
+                }
+            }
+            result.add(new UserSubmissions.RecentSubmission(id, title, titleSlug, timestamp, status, statusDisplay,
+                    lang, url, langName, runtime, isPending, memory, hasNotes, notes, flagType, frontendId, topicTags));
+        }
+    }
+
+    private static void readTopicTags(JsonParser parser, List<UserSubmissions.TopicTag> result) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String id = null;
+            if (startObject(parser)) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    if ("id".equals(name)) {
+                        id = text(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+            result.add(new UserSubmissions.TopicTag(id));
+        }
+    }
+
+    // Value helpers; the parser is positioned on the value token
+
+    // True when positioned on an object; any other value (null, scalar, array) is skipped
+    private static boolean startObject(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            return true;
+        }
+        parser.skipChildren();
+        return false;
+    }
+
+    private static String text(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+        return parser.getText();
+    }
+
+    // Lenient like JsonNode.asInt(): numeric text is parsed, anything else non-null becomes 0
+    private static Integer integer(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return 0;
+        }
+        return parser.getValueAsInt(0);
+    }
+
+    // Integral numbers only, like JsonNode.isInt()
+    private static Integer strictInteger(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() == JsonParser.NumberType.INT) {
+            return parser.getIntValue();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static Double decimal(JsonParser parser) throws IOException {
+        if (parser.currentToken().isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static Boolean bool(JsonParser parser) throws IOException {
+        if (parser.currentToken().isBoolean()) {
+            return parser.getBooleanValue();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static List<String> stringList(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return List.of();
+        }
+        List<String> result = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String value = text(parser);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    private static int aliasIndex(String name) {
+        if (name.length() < 2 || name.charAt(0) != 'u') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name, 1, name.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // errors is the raw "errors" array, or null; nullFields are the fields of "data" that were null
+    private record Document(boolean hasData, JsonNode errors, Set<String> nullFields) {
+
+        boolean hasErrors() {
+            return errors != null && !errors.isEmpty();
+        }
+    }
+
+    @FunctionalInterface
+    private interface DataFieldHandler {
+        void accept(String name, JsonParser parser) throws IOException;
+    }
+}
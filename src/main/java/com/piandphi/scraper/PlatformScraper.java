@@ -0,0 +1,19 @@
+package com.piandphi.scraper;
+
+import com.piandphi.service.EncodedResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+// A platform plugged into ScraperRouter. Adding a platform means adding one of these beans; the router gives it
+// its own bulkhead and GET /platforms/{platform}/{username} serves it.
+public interface PlatformScraper {
+
+    // Lower-case name used in the URL and under scraper-router.platforms
+    String platform();
+
+    // Cached profile body, or null on a miss. Called on the request thread, so it must not block.
+    EncodedResponse cachedProfile(String username);
+
+    // Profile body, going upstream on a miss. Must not block either: the platform's bulkhead only counts it.
+    CompletableFuture<EncodedResponse> fetchProfile(String username);
+}
@@ -0,0 +1,44 @@
+package com.piandphi.scraper;
+
+import io.micronaut.context.annotation.EachProperty;
+import io.micronaut.context.annotation.Parameter;
+
+import java.time.Duration;
+
+// Per-platform bulkhead, bound from scraper-router.platforms.<platform>. At most `concurrency` upstream fetches
+// are in flight at once and anything beyond is rejected rather than queued. Callers give up on a fetch after
+// `timeout`, but its permit is held until the fetch itself completes. Unconfigured platforms get the defaults below.
+@EachProperty("scraper-router.platforms")
+public class PlatformSettings {
+
+    private static final int DEFAULT_CONCURRENCY = 16;
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String name;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private Duration timeout = DEFAULT_TIMEOUT;
+
+    public PlatformSettings(@Parameter String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
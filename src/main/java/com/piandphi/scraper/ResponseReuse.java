@@ -0,0 +1,60 @@
+package com.piandphi.scraper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+// Skips parsing a response that is the same as the last one for its request. Only a hash of each body is kept;
+// the value itself is whatever the caller still holds for it (the cached entry), so nothing parsed lives outside
+// the cache's memory budget. Without a held value the body is parsed as usual.
+final class ResponseReuse {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseReuse.class);
+
+    private final Cache<String, Long> lastHashes;
+
+    ResponseReuse(int maxEntries) {
+        this.lastHashes = Caffeine.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    // One key per operation and variables, e.g. recentSubmissions{limit=20, username=alice}. Single-user
+    // operations only: a batched body depends on who happened to share the batch.
+    static String key(String operationName, Map<String, Object> variables) {
+        return variables.containsKey("username") ? operationName + new TreeMap<>(variables) : null;
+    }
+
+    <T> T parseOrReuse(String key, String body, Parser<T> parser, Supplier<T> held) throws IOException {
+        long hash = hash(body);
+        Long previous = lastHashes.getIfPresent(key);
+        if (previous != null && previous == hash) {
+            T value = held.get();
+            if (value != null) {
+                LOG.debug("Unchanged response for {}, reusing the cached value", key);
+                return value;
+            }
+        }
+        T value = parser.parse(body);
+        lastHashes.put(key, hash);
+        return value;
+    }
+
+    // 64-bit FNV-1a over the body's chars, so it is hashed in place rather than first copied into bytes
+    static long hash(String body) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < body.length(); i++) {
+            hash = (hash ^ body.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    @FunctionalInterface
+    interface Parser<T> {
+        T parse(String body) throws IOException;
+    }
+}
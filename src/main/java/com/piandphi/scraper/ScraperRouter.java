@@ -1,5 +1,194 @@
 package com.piandphi.scraper;
 
+import com.piandphi.service.EncodedResponse;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.micronaut.serde.annotation.Serdeable;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Registry of every PlatformScraper bean, dispatching by platform name, and the per-platform bulkhead every
+// upstream fetch goes through (scraper-router.platforms.<platform>): the /leetcode, /hackerrank and gRPC loaders,
+// background pre-refreshes, and /platforms/{platform}/{username}. A platform has at most `concurrency` fetches in flight; more are
+// rejected straight away and callers stop waiting after `timeout`, so a slow platform uses up only its own permits
+// instead of starving the others. The fetches are non-blocking, so a permit is a counter rather than a thread. A
+// permit is returned only when the fetch itself completes: one that outlives its timeout still counts against the
+// platform, so a hung upstream cannot have more than `concurrency` fetches piled on it. Cache hits are answered
+// without taking one.
+@Singleton
 public class ScraperRouter {
-    // Implementation will go here
+
+    public static final String LEETCODE = "leetcode";
+    public static final String HACKERRANK = "hackerrank";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScraperRouter.class);
+
+    private final Map<String, PlatformScraper> scrapers = new TreeMap<>();
+    // One per registered platform or configured under scraper-router.platforms; fixed after construction
+    private final Map<String, Route> routes = new TreeMap<>();
+
+    public ScraperRouter(List<PlatformScraper> scrapers, List<PlatformSettings> platformSettings) {
+        for (PlatformScraper scraper : scrapers) {
+            String platform = scraper.platform();
+            if (this.scrapers.containsKey(platform)) {
+                throw new IllegalStateException("Duplicate platform scraper: " + platform);
+            }
+            this.scrapers.put(platform, scraper);
+        }
+        for (PlatformSettings settings : platformSettings) {
+            routes.put(settings.getName(), new Route(settings.getName(), settings));
+        }
+        for (String platform : this.scrapers.keySet()) {
+            routes.computeIfAbsent(platform, name -> new Route(name, new PlatformSettings(name)));
+        }
+        routes.forEach((platform, route) -> LOG.info("Platform {}: {} concurrent fetches, timeout {} ms", platform,
+                route.settings.getConcurrency(), route.settings.getTimeout().toMillis()));
+    }
+
+    public Set<String> platforms() {
+        return scrapers.keySet();
+    }
+
+    public boolean supports(String platform) {
+        return scrapers.containsKey(platform);
+    }
+
+    // Fails with BulkheadFullException when the platform is at capacity, TimeoutException past its timeout
+    public CompletableFuture<EncodedResponse> profile(String platform, String username) {
+        PlatformScraper scraper = scrapers.get(platform);
+        if (scraper == null) {
+            throw new IllegalArgumentException("Unknown platform: " + platform);
+        }
+        Route route = route(platform);
+        EncodedResponse cached = scraper.cachedProfile(username);
+        if (cached != null) {
+            route.hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        return route.isolate(() -> scraper.fetchProfile(username));
+    }
+
+    // Runs one upstream fetch under the platform's bulkhead: rejected with BulkheadFullException when the platform
+    // is at capacity, failed with TimeoutException past its timeout. Meant for cache loaders, so requests that
+    // join a load already in flight do not take a permit of their own.
+    public <T> CompletableFuture<T> isolate(String platform, Supplier<CompletableFuture<T>> fetch) {
+        return route(platform).isolate(fetch);
+    }
+
+    // Blocking variant for the virtual-thread scrape path. The timeout is left to the scraper's own deadline,
+    // since a blocking call cannot be abandoned without abandoning its thread.
+    public <T> T isolateBlocking(String platform, Supplier<T> fetch) {
+        Route route = route(platform);
+        route.acquire();
+        try {
+            return fetch.get();
+        } finally {
+            route.bulkhead.onComplete();
+        }
+    }
+
+    public List<PlatformStats> getStats() {
+        return routes.values().stream()
+                .map(Route::snapshot)
+                .toList();
+    }
+
+    private Route route(String platform) {
+        Route route = routes.get(platform);
+        if (route == null) {
+            throw new IllegalArgumentException("Unknown platform: " + platform);
+        }
+        return route;
+    }
+
+    private static final class Route {
+        private final String platform;
+        private final PlatformSettings settings;
+        private final Bulkhead bulkhead;
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder fetches = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+
+        private Route(String platform, PlatformSettings settings) {
+            this.platform = platform;
+            this.settings = settings;
+            this.bulkhead = Bulkhead.of(platform, BulkheadConfig.custom()
+                    .maxConcurrentCalls(Math.max(1, settings.getConcurrency()))
+                    .maxWaitDuration(Duration.ZERO)
+                    .build());
+        }
+
+        private void acquire() {
+            fetches.increment();
+            if (!bulkhead.tryAcquirePermission()) {
+                rejected.increment();
+                throw BulkheadFullException.createBulkheadFullException(bulkhead);
+            }
+        }
+
+        // The permit follows the fetch itself; the timeout is applied to a copy, so it only ends the caller's wait
+        // and a future shared with other callers is never completed by it
+        private <T> CompletableFuture<T> isolate(Supplier<CompletableFuture<T>> fetch) {
+            try {
+                acquire();
+            } catch (BulkheadFullException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<T> fetched;
+            try {
+                fetched = fetch.get();
+            } catch (RuntimeException e) {
+                fetched = CompletableFuture.failedFuture(e);
+            }
+            fetched.whenComplete((value, error) -> bulkhead.onComplete());
+            return fetched.copy()
+                    .orTimeout(settings.getTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((value, error) -> {
+                        if (error instanceof TimeoutException) {
+                            timeouts.increment();
+                            LOG.debug("Platform {} fetch timed out after {} ms", platform, settings.getTimeout().toMillis());
+                        }
+                    });
+        }
+
+        private PlatformStats snapshot() {
+            Bulkhead.Metrics metrics = bulkhead.getMetrics();
+            return new PlatformStats(
+                    platform,
+                    metrics.getMaxAllowedConcurrentCalls(),
+                    metrics.getMaxAllowedConcurrentCalls() - metrics.getAvailableConcurrentCalls(),
+                    hits.sum(),
+                    fetches.sum(),
+                    rejected.sum(),
+                    timeouts.sum()
+            );
+        }
+    }
+
+    @Serdeable.Serializable
+    public record PlatformStats(
+            String platform,
+            int concurrency,
+            int activeFetches,
+            long cacheHits,
+            long fetches,
+            long rejected,
+            long timeouts
+    ) {
+    }
 }
@@ -0,0 +1,148 @@
+package com.piandphi.service;
+
+import io.micronaut.context.annotation.EachProperty;
+import io.micronaut.context.annotation.Parameter;
+
+import java.time.Duration;
+
+// Per-cache settings, bound from profile-cache.caches.<name> (user-profile, hackerrank, contests, submissions).
+// Once an entry is older than soft-ttl a hit still returns it but triggers a background refresh;
+// the entry is only dropped after hard-ttl. Leaving soft-ttl unset disables refresh-ahead.
+// With a global memory budget (profile-cache.memory.budget) each cache is bounded by budget-share of it in
+// estimated bytes; maximum-size only applies when no budget is set.
+// Fallbacks (a scrape that failed) are cached for fallback-ttl and users the upstream does not know for
+// not-found-ttl, so neither is served as real data for hours nor re-scraped on every request.
+// Setting both min-ttl and max-ttl makes the TTL adaptive per entry: hard-ttl is only the starting point, doubled
+// each time a reload finds the user's data unchanged and halved each time it changed, within those bounds.
+// soft-ttl keeps its proportion to the entry's TTL.
+@EachProperty("profile-cache.caches")
+public class CacheSettings {
+
+    private final String name;
+    private Duration softTtl;
+    private Duration hardTtl;
+    private Long maximumSize;
+    private Double budgetShare;
+    private Duration fallbackTtl = Duration.ofMinutes(1);
+    private Duration notFoundTtl = Duration.ofMinutes(30);
+    private Duration minTtl;
+    private Duration maxTtl;
+    private long maximumWeight;
+
+    public CacheSettings(@Parameter String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Duration getSoftTtl() {
+        return softTtl;
+    }
+
+    public void setSoftTtl(Duration softTtl) {
+        this.softTtl = softTtl;
+    }
+
+    public Duration getHardTtl() {
+        return hardTtl;
+    }
+
+    public void setHardTtl(Duration hardTtl) {
+        this.hardTtl = hardTtl;
+    }
+
+    public Long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(Long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Double getBudgetShare() {
+        return budgetShare;
+    }
+
+    public void setBudgetShare(Double budgetShare) {
+        this.budgetShare = budgetShare;
+    }
+
+    public Duration getFallbackTtl() {
+        return fallbackTtl;
+    }
+
+    public void setFallbackTtl(Duration fallbackTtl) {
+        this.fallbackTtl = fallbackTtl;
+    }
+
+    public Duration getNotFoundTtl() {
+        return notFoundTtl;
+    }
+
+    public void setNotFoundTtl(Duration notFoundTtl) {
+        this.notFoundTtl = notFoundTtl;
+    }
+
+    public Duration getMinTtl() {
+        return minTtl;
+    }
+
+    public void setMinTtl(Duration minTtl) {
+        this.minTtl = minTtl;
+    }
+
+    public Duration getMaxTtl() {
+        return maxTtl;
+    }
+
+    public void setMaxTtl(Duration maxTtl) {
+        this.maxTtl = maxTtl;
+    }
+
+    public boolean isAdaptiveTtl() {
+        return minTtl != null && maxTtl != null && minTtl.compareTo(maxTtl) <= 0;
+    }
+
+    // Longest TTL any entry can get, which is how long the durable store keeps entries
+    Duration longestTtl() {
+        return isAdaptiveTtl() && maxTtl.compareTo(hardTtl) > 0 ? maxTtl : hardTtl;
+    }
+
+    // Soft TTL for an entry with the given TTL, or -1 without refresh-ahead
+    long softTtlMillis(long ttlMillis) {
+        if (!isRefreshAhead()) {
+            return -1;
+        }
+        return (long) (ttlMillis * ((double) softTtl.toMillis() / hardTtl.toMillis()));
+    }
+
+    // Resolved byte bound, 0 when the cache is bounded by entry count
+    long maximumWeight() {
+        return maximumWeight;
+    }
+
+    public boolean isRefreshAhead() {
+        return softTtl != null && softTtl.compareTo(hardTtl) < 0;
+    }
+
+    // Fills in anything not configured with the built-in defaults
+    CacheSettings withDefaults(Duration defaultTtl, long defaultMaximumSize, double defaultBudgetShare) {
+        if (hardTtl == null) {
+            hardTtl = defaultTtl;
+        }
+        if (maximumSize == null) {
+            maximumSize = defaultMaximumSize;
+        }
+        if (budgetShare == null) {
+            budgetShare = defaultBudgetShare;
+        }
+        return this;
+    }
+
+    CacheSettings withMemoryBudget(long budgetBytes) {
+        maximumWeight = budgetBytes > 0 ? Math.max(1, (long) (budgetBytes * budgetShare)) : 0;
+        return this;
+    }
+}
@@ -0,0 +1,5 @@
+package com.piandphi.service;
+
+// A cached value already serialized as the JSON response body, with a strong ETag derived from those bytes
+public record EncodedResponse(byte[] body, String etag) {
+}
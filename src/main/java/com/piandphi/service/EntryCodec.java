@@ -0,0 +1,148 @@
+package com.piandphi.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.piandphi.cache.ProfileCacheRoot;
+import io.micronaut.core.type.Argument;
+import io.micronaut.json.JsonMapper;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import net.jpountz.xxhash.XXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.HexFormat;
+
+// How a cache holds its values in memory. Plain keeps the object itself; compact keeps it as LZ4-compressed
+// Smile bytes and decodes it on every hit, trading a little CPU per hit for a much smaller resident size.
+// Both report a weight in estimated bytes for the memory budget. Plain entries also keep the JSON response body
+// rendered by the application's serde mapper, so a hit is written out without serializing again. The durable
+// store gets whichever bytes the entry already holds: the JSON body of a plain entry, the payload of a compact one.
+final class EntryCodec<V> {
+
+    // Per-entry cost of the key, Caffeine node and Entry record, on top of the value itself
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    // Plain values are weighed by the size of their rendered JSON scaled to heap size: the models are records of
+    // short strings, boxed numbers and lists, which take roughly twice their JSON size on the heap
+    private static final int HEAP_BYTES_PER_JSON_BYTE = 2;
+
+    private static final ObjectMapper SMILE = new ObjectMapper(new SmileFactory())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+    private static final XXHash64 XXHASH = XXHashFactory.fastestInstance().hash64();
+
+    private final Class<V> type;
+    private final boolean compact;
+    private final JsonMapper jsonMapper;
+
+    EntryCodec(Class<V> type, boolean compact, JsonMapper jsonMapper) {
+        this.type = type;
+        this.compact = compact;
+        this.jsonMapper = jsonMapper;
+    }
+
+    boolean holdsResponse() {
+        return !compact;
+    }
+
+    EncodedResponse respond(V value) {
+        byte[] body;
+        try {
+            body = jsonMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not render " + type.getSimpleName() + " as JSON", e);
+        }
+        return new EncodedResponse(body, etag(body));
+    }
+
+    Object encode(V value) {
+        if (!compact) {
+            return value;
+        }
+        byte[] smile = toSmile(value);
+        byte[] compressed = new byte[Integer.BYTES + COMPRESSOR.maxCompressedLength(smile.length)];
+        ByteBuffer.wrap(compressed).putInt(smile.length);
+        int length = COMPRESSOR.compress(smile, 0, smile.length, compressed, Integer.BYTES, compressed.length - Integer.BYTES);
+        byte[] result = new byte[Integer.BYTES + length];
+        System.arraycopy(compressed, 0, result, 0, result.length);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    V decode(Object payload) {
+        return compact ? decodeCompact((byte[]) payload) : (V) payload;
+    }
+
+    private V decodeCompact(byte[] compressed) {
+        byte[] smile = new byte[ByteBuffer.wrap(compressed).getInt()];
+        DECOMPRESSOR.decompress(compressed, Integer.BYTES, smile, 0, smile.length);
+        try {
+            return SMILE.readValue(smile, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not decode cached " + type.getSimpleName(), e);
+        }
+    }
+
+    // Estimated bytes of an entry from what it already holds, without encoding anything again: a compact
+    // payload's length, or for a plain entry its response body plus the object graph that body was rendered from
+    int weigh(Object payload, EncodedResponse response) {
+        long estimate = compact
+                ? ((byte[]) payload).length
+                : (long) response.body().length * (HEAP_BYTES_PER_JSON_BYTE + 1);
+        return (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD_BYTES + estimate);
+    }
+
+    byte storedFormat() {
+        return compact ? ProfileCacheRoot.FORMAT_COMPACT : ProfileCacheRoot.FORMAT_JSON;
+    }
+
+    // The bytes to store for an entry, shared with the entry rather than copied
+    byte[] stored(Object payload, EncodedResponse response) {
+        return compact ? (byte[]) payload : response.body();
+    }
+
+    // Payload of an entry restored from bytes in this codec's own format
+    Object payloadFromStored(byte[] bytes) {
+        return compact ? bytes : readJson(bytes);
+    }
+
+    EncodedResponse responseFromStored(byte[] bytes) {
+        return new EncodedResponse(bytes, etag(bytes));
+    }
+
+    // A value stored in any format, e.g. by the other mode before a restart
+    V fromStored(byte format, byte[] bytes) {
+        return switch (format) {
+            case ProfileCacheRoot.FORMAT_COMPACT -> decodeCompact(bytes);
+            case ProfileCacheRoot.FORMAT_JSON -> readJson(bytes);
+            default -> throw new IllegalArgumentException("Unknown stored format " + format);
+        };
+    }
+
+    // Strong validator: same bytes, same tag. It only has to tell versions of one user's data apart, which a
+    // 64-bit xxHash does at a fraction of the cost of a cryptographic digest.
+    private static String etag(byte[] body) {
+        return "\"" + HexFormat.of().toHexDigits(XXHASH.hash(body, 0, body.length, 0)) + "\"";
+    }
+
+    private V readJson(byte[] json) {
+        try {
+            return jsonMapper.readValue(json, Argument.of(type));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read stored " + type.getSimpleName(), e);
+        }
+    }
+
+    private byte[] toSmile(V value) {
+        try {
+            return SMILE.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode " + type.getSimpleName() + " for the cache", e);
+        }
+    }
+}
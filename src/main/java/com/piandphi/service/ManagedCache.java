@@ -0,0 +1,706 @@
+package com.piandphi.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.piandphi.cache.ProfileCacheRoot;
+import com.piandphi.resilience.ScrapeResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// One Caffeine cache plus single-flight loading: concurrent misses for the same key share one in-flight load.
+// Entries carry the time they were loaded; past the soft TTL a hit is still served but refreshed in the
+// background, past the hard TTL the entry expires. Every loaded value is also written to a durable region,
+// which is consulted on a miss before going upstream, so entries survive restarts. Values are held in the form
+// chosen by the EntryCodec (plain objects or compressed bytes), each weighted by its estimated size in bytes.
+// Loaders report how the value was obtained: fallbacks are cached for fallback-ttl only and never stored, and
+// users the upstream does not know are cached as value-less entries for not-found-ttl (answered with
+// ProfileNotFoundException) and remembered in the platform's NotFoundFilter.
+// Requests per key are counted (halved on every decay) so the hottest keys can be pre-refreshed before they
+// expire, see hottestExpiring. With an adaptive TTL each fresh entry carries its own TTL, learned from whether
+// the user's data changed between loads (compared by ETag); that history outlives the entry itself.
+final class ManagedCache<V> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ManagedCache.class);
+
+    // Bounds the request counters, so a flood of distinct names cannot grow them without limit
+    private static final int MAX_TRACKED_KEYS = 10_000;
+    private static final int MAX_HISTORY_KEYS = 50_000;
+
+    private final String name;
+    private final CacheSettings settings;
+    // Runs blocking work off the caller's thread: store reads and background refreshes of blocking loaders
+    private final Executor blockingExecutor;
+    private final ProfileCacheRoot.Region store;
+    private final EntryCodec<V> codec;
+    private final NotFoundFilter notFound;
+    private final AsyncCache<String, Entry<V>> cache;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Map<String, LongAdder> popularity = new ConcurrentHashMap<>();
+    // Last seen version and TTL per key, kept past the entry's expiry; null unless the TTL is adaptive
+    private final Cache<String, ChangeHistory> history;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalescedRequests = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder storeHits = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder notFoundHits = new LongAdder();
+    private final LongAdder preRefreshes = new LongAdder();
+    private final LongAdder changedReloads = new LongAdder();
+    private final LongAdder unchangedReloads = new LongAdder();
+
+    // notFound may be null when the filter is disabled
+    ManagedCache(String name, CacheSettings settings, Executor blockingExecutor, ProfileCacheRoot.Region store,
+                 EntryCodec<V> codec, NotFoundFilter notFound) {
+        this.name = name;
+        this.settings = settings;
+        this.blockingExecutor = blockingExecutor;
+        this.store = store;
+        this.codec = codec;
+        this.notFound = notFound;
+
+        Caffeine<String, Entry<V>> builder = Caffeine.newBuilder()
+                .expireAfter(new EntryExpiry<V>())
+                .recordStats();
+        // Bounded by its share of the global memory budget when one is configured, by entry count otherwise
+        if (settings.maximumWeight() > 0) {
+            builder.maximumWeight(settings.maximumWeight()).weigher((String key, Entry<V> entry) -> entry.weight());
+        } else {
+            builder.maximumSize(settings.getMaximumSize());
+        }
+        this.cache = builder.buildAsync();
+        this.history = settings.isAdaptiveTtl()
+                ? Caffeine.newBuilder()
+                        .maximumSize(MAX_HISTORY_KEYS)
+                        .expireAfterWrite(settings.getMaxTtl().multipliedBy(2))
+                        .build()
+                : null;
+    }
+
+    V getIfPresent(String key) {
+        Entry<V> entry = cache.synchronous().getIfPresent(key);
+        if (entry != null && !entry.isNotFound()) {
+            LOG.debug("Cache HIT for {}: {}", name, key);
+            return value(entry);
+        }
+        LOG.debug("Cache MISS for {}: {}", name, key);
+        return null;
+    }
+
+    // Completed value only: never waits for an in-flight load. Not-found entries count as absent.
+    V peek(String key) {
+        touch(key);
+        return peekQuietly(key);
+    }
+
+    // As peek, for internal lookups that are not requests and should not count towards popularity
+    V peekQuietly(String key) {
+        Entry<V> entry = peekEntry(key);
+        return entry != null && !entry.isNotFound() ? value(entry) : null;
+    }
+
+    // As peekQuietly, real data only: a fallback counts as absent
+    V peekFresh(String key) {
+        Entry<V> entry = peekEntry(key);
+        return entry != null && entry.outcome() == ScrapeResult.Outcome.FRESH ? value(entry) : null;
+    }
+
+    // As peek, with the entry's outcome: a cached fallback is reported as one
+    ScrapeResult<V> peekResult(String key) {
+        touch(key);
+        Entry<V> entry = peekEntry(key);
+        return entry != null && !entry.isNotFound() ? result(entry) : null;
+    }
+
+    EncodedResponse peekEncoded(String key) {
+        touch(key);
+        Entry<V> entry = peekEntry(key);
+        return entry != null && !entry.isNotFound() ? encoded(entry) : null;
+    }
+
+    // Whether a lookup would be answered as not found without going upstream. The store is only read when the
+    // filter names the key, and then on the blocking executor.
+    CompletableFuture<Boolean> isKnownMissing(String key) {
+        Entry<V> entry = peekEntry(key);
+        if (entry != null) {
+            return CompletableFuture.completedFuture(entry.isNotFound());
+        }
+        if (notFound == null || !notFound.mightContain(key)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return CompletableFuture.supplyAsync(() -> store.get(key) == null, blockingExecutor);
+    }
+
+    // Records a user the upstream does not know, e.g. one reported by a query that filled another cache
+    void putNotFound(String key) {
+        cache.put(key, CompletableFuture.completedFuture(newEntry(key, ScrapeResult.notFound(null))));
+    }
+
+    private Entry<V> peekEntry(String key) {
+        CompletableFuture<Entry<V>> future = cache.getIfPresent(key);
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        return future.join();
+    }
+
+    void put(String key, V value) {
+        cache.put(key, CompletableFuture.completedFuture(newEntry(key, ScrapeResult.fresh(value))));
+        LOG.debug("Cached {}: {}", name, key);
+    }
+
+    // Bulk-loads every unexpired stored entry into memory; returns how many were loaded
+    int warm() {
+        int[] warmed = new int[1];
+        store.forEach((key, stored) -> {
+            try {
+                cache.put(key, CompletableFuture.completedFuture(restore(stored)));
+                warmed[0]++;
+            } catch (RuntimeException e) {
+                LOG.warn("Could not restore stored {} entry {}: {}", name, key, e.getMessage());
+            }
+        });
+        return warmed[0];
+    }
+
+    // Returns the cached value or runs the loader on the calling thread. Callers arriving while a load is in
+    // flight wait for that load instead of starting their own. The loader runs outside the cache's map
+    // compute, so a slow scrape never blocks other keys. Callers run blocking loaders, so they are on a thread
+    // that may block, and a miss reads the store on it too.
+    V get(String key, Supplier<ScrapeResult<V>> loader) {
+        return value(getEntry(key, loader));
+    }
+
+    // Same lookup, answered with the entry's pre-encoded JSON body and ETag
+    EncodedResponse getEncoded(String key, Supplier<ScrapeResult<V>> loader) {
+        return encoded(getEntry(key, loader));
+    }
+
+    private Entry<V> getEntry(String key, Supplier<ScrapeResult<V>> loader) {
+        touch(key);
+        CompletableFuture<Entry<V>> promise = new CompletableFuture<>();
+        CompletableFuture<Entry<V>> future = cache.get(key, (k, executor) -> promise);
+
+        boolean loaded = false;
+        if (future == promise) {
+            Entry<V> stored = fromStore(key);
+            if (stored != null) {
+                promise.complete(stored);
+            } else if (filtered(key)) {
+                promise.complete(notFoundEntry(key));
+            } else {
+                loaded = true;
+                loads.increment();
+                LOG.debug("Cache MISS for {}: {} - loading", name, key);
+                try {
+                    promise.complete(newEntry(key, loader.get()));
+                } catch (Throwable t) {
+                    // Failed futures are dropped by Caffeine, so the next caller retries the load
+                    promise.completeExceptionally(t);
+                }
+            }
+        } else if (!future.isDone()) {
+            coalescedRequests.increment();
+            LOG.debug("Joining in-flight load for {}: {}", name, key);
+        } else {
+            LOG.debug("Cache HIT for {}: {}", name, key);
+        }
+
+        Entry<V> entry = join(future);
+        if (!loaded && entry.isNotFound()) {
+            notFoundHits.increment();
+        }
+        if (!loaded && isStale(entry) && refreshAsync(key, () -> CompletableFuture.supplyAsync(loader, blockingExecutor))) {
+            refreshes.increment();
+        }
+        return entry;
+    }
+
+    // Non-blocking variant for loaders that return a future. The loader is only started by the first caller, after
+    // the store has been read on the blocking executor, so no file is read on the caller's thread.
+    CompletableFuture<V> getAsync(String key, Supplier<CompletableFuture<ScrapeResult<V>>> loader) {
+        return getEntryAsync(key, loader).thenApply(this::value);
+    }
+
+    // The outcome is the entry's, whoever loaded it: a caller joining a load that fell back sees the fallback too
+    CompletableFuture<ScrapeResult<V>> getResultAsync(String key, Supplier<CompletableFuture<ScrapeResult<V>>> loader) {
+        return getEntryAsync(key, loader).thenApply(this::result);
+    }
+
+    CompletableFuture<EncodedResponse> getEncodedAsync(String key, Supplier<CompletableFuture<ScrapeResult<V>>> loader) {
+        return getEntryAsync(key, loader).thenApply(this::encoded);
+    }
+
+    private CompletableFuture<Entry<V>> getEntryAsync(String key, Supplier<CompletableFuture<ScrapeResult<V>>> loader) {
+        touch(key);
+        boolean[] started = new boolean[1];
+        CompletableFuture<Entry<V>> future = cache.get(key, (k, executor) -> {
+            started[0] = true;
+            if (!store.isEnabled()) {
+                return loadAsync(k, loader);
+            }
+            return CompletableFuture.supplyAsync(() -> fromStore(k), blockingExecutor)
+                    .thenCompose(stored -> stored != null ? CompletableFuture.completedFuture(stored) : loadAsync(k, loader));
+        });
+
+        if (started[0]) {
+            return future;
+        }
+        if (!future.isDone()) {
+            coalescedRequests.increment();
+            LOG.debug("Joining in-flight load for {}: {}", name, key);
+            return future;
+        }
+
+        LOG.debug("Cache HIT for {}: {}", name, key);
+        return future.thenApply(entry -> {
+            if (entry.isNotFound()) {
+                notFoundHits.increment();
+            }
+            if (isStale(entry) && refreshAsync(key, loader)) {
+                refreshes.increment();
+            }
+            return entry;
+        });
+    }
+
+    // A key in neither memory nor the store: answered by the not-found filter or loaded upstream
+    private CompletableFuture<Entry<V>> loadAsync(String key, Supplier<CompletableFuture<ScrapeResult<V>>> loader) {
+        if (filtered(key)) {
+            notFoundHits.increment();
+            return CompletableFuture.completedFuture(notFoundEntry(key));
+        }
+        loads.increment();
+        LOG.debug("Cache MISS for {}: {} - loading", name, key);
+        return loader.get().thenApply(result -> newEntry(key, result));
+    }
+
+    // As get(), but a cached value that does not satisfy the caller (e.g. a shorter list than requested) is
+    // replaced by a new load instead of being returned.
+    V get(String key, Supplier<ScrapeResult<V>> loader, Predicate<V> sufficient) {
+        V value = get(key, loader);
+        if (sufficient.test(value)) {
+            return value;
+        }
+        return join(reload(key, () -> CompletableFuture.completedFuture(loader.get()), sufficient));
+    }
+
+    CompletableFuture<V> getAsync(String key, Supplier<CompletableFuture<ScrapeResult<V>>> loader, Predicate<V> sufficient) {
+        return getAsync(key, loader).thenCompose(value -> sufficient.test(value)
+                ? CompletableFuture.completedFuture(value)
+                : reload(key, loader, sufficient));
+    }
+
+    void invalidateAll() {
+        cache.synchronous().invalidateAll();
+        store.clear();
+        popularity.clear();
+        if (history != null) {
+            history.invalidateAll();
+        }
+    }
+
+    // Among the limit most requested keys, those whose fresh entry expires within windowMillis, most requested
+    // first. Keys already being refreshed are skipped. Entries are inspected without counting as reads.
+    List<Map.Entry<String, Long>> hottestExpiring(int limit, long windowMillis) {
+        long expiresBefore = System.currentTimeMillis() + windowMillis;
+        return popularity.entrySet().stream()
+                .map(counter -> Map.entry(counter.getKey(), counter.getValue().sum()))
+                .filter(counter -> counter.getValue() > 0)
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(limit)
+                .filter(counter -> !refreshing.contains(counter.getKey()))
+                .filter(counter -> {
+                    // Completed entries only; an in-flight load reads as absent
+                    Entry<V> entry = cache.synchronous().policy().getIfPresentQuietly(counter.getKey());
+                    return entry != null && entry.outcome() == ScrapeResult.Outcome.FRESH
+                            && entry.cachedAt() + entry.ttlMillis() <= expiresBefore;
+                })
+                .toList();
+    }
+
+    // Refreshes a cached key in the background ahead of its expiry; false if a refresh is already running
+    boolean preRefresh(String key, Supplier<CompletableFuture<ScrapeResult<V>>> loader) {
+        if (!refreshAsync(key, loader)) {
+            return false;
+        }
+        preRefreshes.increment();
+        return true;
+    }
+
+    // Halves every request count and forgets keys that dropped to zero, so popularity follows recent traffic
+    void decayPopularity() {
+        popularity.entrySet().removeIf(counter -> {
+            long half = counter.getValue().sumThenReset() / 2;
+            counter.getValue().add(half);
+            return half == 0;
+        });
+    }
+
+    void cleanUp() {
+        cache.synchronous().cleanUp();
+    }
+
+    long estimatedSize() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    long loads() {
+        return loads.sum();
+    }
+
+    long coalescedRequests() {
+        return coalescedRequests.sum();
+    }
+
+    long refreshes() {
+        return refreshes.sum();
+    }
+
+    long storeHits() {
+        return storeHits.sum();
+    }
+
+    long fallbacks() {
+        return fallbacks.sum();
+    }
+
+    long notFoundHits() {
+        return notFoundHits.sum();
+    }
+
+    long preRefreshes() {
+        return preRefreshes.sum();
+    }
+
+    long changedReloads() {
+        return changedReloads.sum();
+    }
+
+    long unchangedReloads() {
+        return unchangedReloads.sum();
+    }
+
+    // Sum of entry weights plus the store writes not flushed yet, i.e. the estimated bytes held in memory
+    long estimatedBytes() {
+        return store.pendingBytes() + cache.synchronous().policy().eviction()
+                .filter(eviction -> eviction.isWeighted())
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElseGet(() -> cache.synchronous().asMap().values().stream().mapToLong(Entry::weight).sum());
+    }
+
+    private Entry<V> encode(V value, long cachedAt, ScrapeResult.Outcome outcome, long ttlMillis) {
+        Object payload = codec.encode(value);
+        EncodedResponse response = codec.holdsResponse() ? codec.respond(value) : null;
+        int weight = codec.weigh(payload, response);
+        return new Entry<>(payload, cachedAt, weight, response, outcome, ttlMillis);
+    }
+
+    private V value(Entry<V> entry) {
+        if (entry.isNotFound()) {
+            throw new ProfileNotFoundException((String) entry.payload());
+        }
+        return codec.decode(entry.payload());
+    }
+
+    // Not-found entries throw, as value does
+    private ScrapeResult<V> result(Entry<V> entry) {
+        return entry.outcome() == ScrapeResult.Outcome.FALLBACK
+                ? ScrapeResult.fallback(value(entry))
+                : ScrapeResult.fresh(value(entry));
+    }
+
+    // Compact entries do not keep their response body, so it is rendered again on each hit
+    private EncodedResponse encoded(Entry<V> entry) {
+        return entry.response() != null ? entry.response() : codec.respond(value(entry));
+    }
+
+    // Entry for a value just loaded. Only fresh values are written behind to the durable store; a not-found
+    // entry holds just the key, for its exception message.
+    private Entry<V> newEntry(String key, ScrapeResult<V> result) {
+        long now = System.currentTimeMillis();
+        switch (result.outcome()) {
+            case NOT_FOUND -> {
+                if (notFound != null) {
+                    notFound.add(key);
+                }
+                LOG.debug("Caching {} as not found: {}", name, key);
+                return notFoundEntry(key);
+            }
+            case FALLBACK -> {
+                fallbacks.increment();
+                return encode(result.value(), now, ScrapeResult.Outcome.FALLBACK, settings.getFallbackTtl().toMillis());
+            }
+            default -> {
+                // A scraper that got back an unchanged response returns the very instance already cached: keep its
+                // payload and rendered response and only restart its lifetime
+                Entry<V> current = codec.holdsResponse() ? peekEntry(key) : null;
+                Entry<V> entry = current != null && current.outcome() == ScrapeResult.Outcome.FRESH && current.payload() == result.value()
+                        ? current.renewed(now, settings.getHardTtl().toMillis())
+                        : encode(result.value(), now, ScrapeResult.Outcome.FRESH, settings.getHardTtl().toMillis());
+                if (history != null) {
+                    entry = entry.withTtl(adaptTtl(key, entry));
+                }
+                store.put(key, codec.storedFormat(), codec.stored(entry.payload(), entry.response()), now, entry.ttlMillis());
+                return entry;
+            }
+        }
+    }
+
+    // Not added to the filter here: a name the filter answered for must still age out of it
+    private Entry<V> notFoundEntry(String key) {
+        return new Entry<>(key, System.currentTimeMillis(), 64 + 2 * key.length(), null, ScrapeResult.Outcome.NOT_FOUND,
+                settings.getNotFoundTtl().toMillis());
+    }
+
+    // Doubles the key's TTL when the new value has the same ETag as the last one loaded, halves it when it
+    // differs, within min-ttl and max-ttl. A key without history starts at hard-ttl.
+    private long adaptTtl(String key, Entry<V> entry) {
+        String version = encoded(entry).etag();
+        long minTtl = settings.getMinTtl().toMillis();
+        long maxTtl = settings.getMaxTtl().toMillis();
+        ChangeHistory previous = history.getIfPresent(key);
+        long ttl;
+        if (previous == null) {
+            ttl = settings.getHardTtl().toMillis();
+        } else if (previous.version().equals(version)) {
+            unchangedReloads.increment();
+            ttl = previous.ttlMillis() * 2;
+        } else {
+            changedReloads.increment();
+            ttl = previous.ttlMillis() / 2;
+        }
+        ttl = Math.max(minTtl, Math.min(maxTtl, ttl));
+        history.put(key, new ChangeHistory(version, ttl));
+        LOG.debug("TTL for {} {}: {} ms", name, key, ttl);
+        return ttl;
+    }
+
+    private boolean filtered(String key) {
+        if (notFound == null || !notFound.mightContain(key)) {
+            return false;
+        }
+        LOG.debug("Known missing {}: {} - not loading", name, key);
+        return true;
+    }
+
+    // A stored entry keeps its original timestamp, so it is still refreshed or expired on schedule
+    private Entry<V> fromStore(String key) {
+        ProfileCacheRoot.StoredEntry stored = store.get(key);
+        if (stored == null || System.currentTimeMillis() - stored.cachedAt() >= storedTtl(stored)) {
+            return null;
+        }
+        Entry<V> entry;
+        try {
+            entry = restore(stored);
+        } catch (RuntimeException e) {
+            LOG.warn("Could not restore stored {} entry {}: {}", name, key, e.getMessage());
+            return null;
+        }
+        storeHits.increment();
+        LOG.debug("Cache MISS for {}: {} - restored from store", name, key);
+        return entry;
+    }
+
+    // Bytes in this codec's own format become the entry as they are; anything else is decoded and encoded again
+    private Entry<V> restore(ProfileCacheRoot.StoredEntry stored) {
+        if (stored.format() != codec.storedFormat()) {
+            return encode(codec.fromStored(stored.format(), stored.bytes()), stored.cachedAt(),
+                    ScrapeResult.Outcome.FRESH, storedTtl(stored));
+        }
+        Object payload = codec.payloadFromStored(stored.bytes());
+        EncodedResponse response = codec.holdsResponse() ? codec.responseFromStored(stored.bytes()) : null;
+        return new Entry<>(payload, stored.cachedAt(), codec.weigh(payload, response), response,
+                ScrapeResult.Outcome.FRESH, storedTtl(stored));
+    }
+
+    // Entries stored before TTLs were per entry get hard-ttl
+    private long storedTtl(ProfileCacheRoot.StoredEntry stored) {
+        return stored.ttlMillis() > 0 ? stored.ttlMillis() : settings.getHardTtl().toMillis();
+    }
+
+    // Fallback and not-found entries are not refreshed, they expire soon anyway
+    private boolean isStale(Entry<V> entry) {
+        if (entry.outcome() != ScrapeResult.Outcome.FRESH) {
+            return false;
+        }
+        long softTtl = settings.softTtlMillis(entry.ttlMillis());
+        return softTtl >= 0 && System.currentTimeMillis() - entry.cachedAt() >= softTtl;
+    }
+
+    // Swaps an insufficient entry for a new load. A load already in flight is joined and re-checked; if the
+    // new load fails or falls back the previous entry stays cached. The loader runs outside the map compute.
+    private CompletableFuture<V> reload(String key, Supplier<CompletableFuture<ScrapeResult<V>>> loader, Predicate<V> sufficient) {
+        CompletableFuture<Entry<V>> promise = new CompletableFuture<>();
+        AtomicReference<Entry<V>> previous = new AtomicReference<>();
+        CompletableFuture<Entry<V>> current = cache.asMap().compute(key, (k, existing) -> {
+            if (existing != null && !existing.isDone()) {
+                return existing;
+            }
+            if (existing != null && !existing.isCompletedExceptionally()) {
+                Entry<V> entry = existing.join();
+                if (satisfies(entry, sufficient)) {
+                    return existing;
+                }
+                previous.set(entry);
+            }
+            return promise;
+        });
+
+        if (current != promise) {
+            if (!current.isDone()) {
+                coalescedRequests.increment();
+                LOG.debug("Joining in-flight load for {}: {}", name, key);
+            }
+            return current.thenCompose(entry -> satisfies(entry, sufficient)
+                    ? CompletableFuture.completedFuture(value(entry))
+                    : reload(key, loader, sufficient));
+        }
+
+        loads.increment();
+        LOG.debug("Cached {} does not cover request: {} - reloading", name, key);
+        CompletableFuture<ScrapeResult<V>> load;
+        try {
+            load = loader.get();
+        } catch (Throwable t) {
+            load = CompletableFuture.failedFuture(t);
+        }
+        load.whenComplete((result, error) -> {
+            if (error == null && (!result.isFallback() || previous.get() == null)) {
+                promise.complete(newEntry(key, result));
+            } else if (previous.get() != null) {
+                promise.complete(previous.get());
+            } else {
+                promise.completeExceptionally(error);
+            }
+        });
+        return promise.thenApply(this::value);
+    }
+
+    // A not-found entry is a final answer, whatever the caller asked for
+    private boolean satisfies(Entry<V> entry, Predicate<V> sufficient) {
+        return entry.isNotFound() || sufficient.test(value(entry));
+    }
+
+    // At most one background refresh per key; the stale value keeps being served until it completes. A
+    // refresh that falls back keeps the stale value rather than replacing real data with a fallback.
+    private boolean refreshAsync(String key, Supplier<CompletableFuture<ScrapeResult<V>>> loader) {
+        if (!refreshing.add(key)) {
+            return false;
+        }
+        LOG.debug("Refreshing {} in background: {}", name, key);
+        CompletableFuture<ScrapeResult<V>> refresh;
+        try {
+            refresh = loader.get();
+        } catch (Throwable t) {
+            refresh = CompletableFuture.failedFuture(t);
+        }
+        refresh.whenComplete((result, error) -> {
+            try {
+                if (error == null && !result.isFallback()) {
+                    cache.put(key, CompletableFuture.completedFuture(newEntry(key, result)));
+                } else if (error == null) {
+                    LOG.warn("Background refresh of {} {} fell back, keeping the stale value", name, key);
+                } else {
+                    LOG.warn("Background refresh of {} {} failed: {}", name, key, error.getMessage());
+                }
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+        return true;
+    }
+
+    private void touch(String key) {
+        LongAdder counter = popularity.get(key);
+        if (counter == null) {
+            if (popularity.size() >= MAX_TRACKED_KEYS) {
+                return;
+            }
+            counter = popularity.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for cache load", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    // payload is the value as held by the codec (the key for not-found entries); weight is its estimated size
+    // in bytes; response is the encoded HTTP body, kept for plain entries so hits skip serialization; ttlMillis
+    // is how long after cachedAt the entry expires, set by its outcome and, for fresh ones, the adaptive TTL
+    record Entry<V>(Object payload, long cachedAt, int weight, EncodedResponse response, ScrapeResult.Outcome outcome,
+                    long ttlMillis) {
+
+        boolean isNotFound() {
+            return outcome == ScrapeResult.Outcome.NOT_FOUND;
+        }
+
+        Entry<V> withTtl(long ttlMillis) {
+            return new Entry<>(payload, cachedAt, weight, response, outcome, ttlMillis);
+        }
+
+        Entry<V> renewed(long cachedAt, long ttlMillis) {
+            return new Entry<>(payload, cachedAt, weight, response, outcome, ttlMillis);
+        }
+    }
+
+    record ChangeHistory(String version, long ttlMillis) {
+    }
+
+    // Expires an entry ttlMillis after it was loaded, measured from its own timestamp
+    private static final class EntryExpiry<V> implements Expiry<String, Entry<V>> {
+
+        @Override
+        public long expireAfterCreate(String key, Entry<V> entry, long currentTime) {
+            return remaining(entry);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry<V> entry, long currentTime, long currentDuration) {
+            return remaining(entry);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry<V> entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private long remaining(Entry<V> entry) {
+            long age = System.currentTimeMillis() - entry.cachedAt();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, entry.ttlMillis() - age));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.piandphi.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bloom filter of usernames an upstream reported as nonexistent, shared by the caches of one platform, so junk
+// names are answered without a scrape even after their negative entries expired or were evicted. Two
+// generations are kept and the older one dropped every period, so a name is remembered for one to two periods
+// and a user registered since then becomes visible again. A false positive answers a real user as not found
+// until it ages out, which is why the rate is kept low; entries in the durable store are checked first.
+final class NotFoundFilter {
+
+    private final int bits;
+    private final int hashes;
+    private final long periodNanos;
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile Generation current;
+    private volatile Generation previous;
+    private volatile long rotatedAt;
+
+    NotFoundFilter(long expectedInsertions, double falsePositiveRate, long periodNanos) {
+        long n = Math.max(1, expectedInsertions);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        this.bits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, m));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        this.periodNanos = periodNanos;
+        this.current = new Generation(bits);
+        this.previous = new Generation(bits);
+        this.rotatedAt = System.nanoTime();
+    }
+
+    void add(String username) {
+        rotateIfDue();
+        long hash = hash(username);
+        Generation generation = current;
+        for (int i = 0; i < hashes; i++) {
+            generation.set(index(hash, i));
+        }
+        generation.insertions.increment();
+    }
+
+    boolean mightContain(String username) {
+        rotateIfDue();
+        long hash = hash(username);
+        if (contains(current, hash) || contains(previous, hash)) {
+            rejected.increment();
+            return true;
+        }
+        return false;
+    }
+
+    void clear() {
+        synchronized (this) {
+            current = new Generation(bits);
+            previous = new Generation(bits);
+            rotatedAt = System.nanoTime();
+        }
+    }
+
+    // Names remembered in both generations (an approximation: a name added twice counts twice)
+    long size() {
+        return current.insertions.sum() + previous.insertions.sum();
+    }
+
+    // Lookups answered as not found by the filter
+    long rejected() {
+        return rejected.sum();
+    }
+
+    private boolean contains(Generation generation, long hash) {
+        for (int i = 0; i < hashes; i++) {
+            if (!generation.get(index(hash, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rotateIfDue() {
+        if (System.nanoTime() - rotatedAt < periodNanos) {
+            return;
+        }
+        synchronized (this) {
+            long elapsed = System.nanoTime() - rotatedAt;
+            if (elapsed >= periodNanos) {
+                // After two idle periods both generations have aged out
+                previous = elapsed >= 2 * periodNanos ? new Generation(bits) : current;
+                current = new Generation(bits);
+                rotatedAt = System.nanoTime();
+            }
+        }
+    }
+
+    // Double hashing over the two halves of one 64-bit hash
+    private int index(long hash, int i) {
+        int combined = (int) hash + i * (int) (hash >>> 32);
+        return (combined & Integer.MAX_VALUE) % bits;
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes, finished with a mixer so both halves are well distributed
+    private static long hash(String username) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : username.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Generation {
+        private final AtomicLongArray words;
+        private final LongAdder insertions = new LongAdder();
+
+        private Generation(int bits) {
+            this.words = new AtomicLongArray((bits + 63) / 64);
+        }
+
+        private void set(int bit) {
+            long mask = 1L << bit;
+            int word = bit >>> 6;
+            long value;
+            do {
+                value = words.get(word);
+                if ((value & mask) != 0) {
+                    return;
+                }
+            } while (!words.compareAndSet(word, value, value | mask));
+        }
+
+        private boolean get(int bit) {
+            return (words.get(bit >>> 6) & (1L << bit)) != 0;
+        }
+    }
+}
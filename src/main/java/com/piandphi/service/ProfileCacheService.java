@@ -1,141 +1,488 @@
 package com.piandphi.service;
 
+import com.piandphi.cache.ProfileCacheRoot;
+import com.piandphi.execution.ScrapeExecutor;
 import com.piandphi.model.HackerRankProfile;
 import com.piandphi.model.UserProfile;
 import com.piandphi.model.UserContestHistory;
+import com.piandphi.model.UserSnapshot;
 import com.piandphi.model.UserSubmissions;
+import com.piandphi.resilience.ScrapeResult;
 import jakarta.inject.Singleton;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.convert.format.ReadableBytes;
+import io.micronaut.json.JsonMapper;
+import io.micronaut.serde.annotation.Serdeable;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 @Singleton
 public class ProfileCacheService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ProfileCacheService.class);
 
-    // Cache TTL settings
+    // Default TTL settings, used as hard TTL when profile-cache.caches.<name> is not configured
     private static final Duration USER_PROFILE_TTL = Duration.ofHours(1);
     private static final Duration HACKERRANK_PROFILE_TTL = Duration.ofHours(2);
     private static final Duration CONTEST_HISTORY_TTL = Duration.ofMinutes(30);
     private static final Duration SUBMISSIONS_TTL = Duration.ofMinutes(15);
 
-    // Caffeine caches
-    private Cache<String, UserProfile> userProfiles;
-    private Cache<String, HackerRankProfile> hackerRankProfiles;
-    private Cache<String, UserContestHistory> contestHistories;
-    private Cache<String, List<UserSubmissions.RecentSubmission>> submissions;
+    // Caffeine caches with single-flight loading
+    private ManagedCache<UserProfile> userProfiles;
+    private ManagedCache<HackerRankProfile> hackerRankProfiles;
+    private ManagedCache<UserContestHistory> contestHistories;
+    private ManagedCache<SubmissionsEntry> submissions;
+
+    // Usernames each platform reported as nonexistent, shared by that platform's caches; null when disabled
+    private NotFoundFilter leetCodeNotFound;
+    private NotFoundFilter hackerRankNotFound;
+
+    // In-flight snapshot loads, so concurrent snapshot misses for a user share one upstream query
+    private final Map<String, CompletableFuture<UserSnapshot>> snapshotLoads = new ConcurrentHashMap<>();
+
+    private final List<CacheSettings> cacheSettings;
+    private final ScrapeExecutor refreshExecutor;
+    private final ProfileCacheRoot cacheRoot;
+    private final long memoryBudget;
+    private final boolean compact;
+    private final JsonMapper jsonMapper;
+    private final boolean notFoundFilterEnabled;
+    private final long notFoundExpectedInsertions;
+    private final double notFoundFalsePositiveRate;
+    private final Duration notFoundPeriod;
+
+    public ProfileCacheService(List<CacheSettings> cacheSettings, ScrapeExecutor refreshExecutor, ProfileCacheRoot cacheRoot,
+                               JsonMapper jsonMapper,
+                               @Value("${profile-cache.memory.budget:256MB}") @ReadableBytes long memoryBudget,
+                               @Value("${profile-cache.memory.compact:false}") boolean compact,
+                               @Value("${profile-cache.not-found-filter.enabled:true}") boolean notFoundFilterEnabled,
+                               @Value("${profile-cache.not-found-filter.expected-insertions:100000}") long notFoundExpectedInsertions,
+                               @Value("${profile-cache.not-found-filter.false-positive-rate:0.001}") double notFoundFalsePositiveRate,
+                               @Value("${profile-cache.not-found-filter.period:1h}") Duration notFoundPeriod) {
+        this.cacheSettings = cacheSettings;
+        this.refreshExecutor = refreshExecutor;
+        this.cacheRoot = cacheRoot;
+        this.memoryBudget = memoryBudget;
+        this.compact = compact;
+        this.jsonMapper = jsonMapper;
+        this.notFoundFilterEnabled = notFoundFilterEnabled;
+        this.notFoundExpectedInsertions = notFoundExpectedInsertions;
+        this.notFoundFalsePositiveRate = notFoundFalsePositiveRate;
+        this.notFoundPeriod = notFoundPeriod;
+    }
 
     @PostConstruct
     public void init() {
-        LOG.info("Initializing Caffeine caches...");
-
-        userProfiles = Caffeine.newBuilder()
-                .expireAfterWrite(USER_PROFILE_TTL)
-                .maximumSize(1000)
-                .recordStats()
-                .build();
-
-        hackerRankProfiles = Caffeine.newBuilder()
-                .expireAfterWrite(HACKERRANK_PROFILE_TTL)
-                .maximumSize(1000)
-                .recordStats()
-                .build();
-
-        contestHistories = Caffeine.newBuilder()
-                .expireAfterWrite(CONTEST_HISTORY_TTL)
-                .maximumSize(500)
-                .recordStats()
-                .build();
-
-        submissions = Caffeine.newBuilder()
-                .expireAfterWrite(SUBMISSIONS_TTL)
-                .maximumSize(2000)
-                .recordStats()
-                .build();
+        LOG.info("Initializing Caffeine caches (memory budget {} bytes, {} entries)...",
+                memoryBudget > 0 ? memoryBudget : "unbounded", compact ? "compact" : "plain");
+
+        if (notFoundFilterEnabled) {
+            leetCodeNotFound = new NotFoundFilter(notFoundExpectedInsertions, notFoundFalsePositiveRate, notFoundPeriod.toNanos());
+            hackerRankNotFound = new NotFoundFilter(notFoundExpectedInsertions, notFoundFalsePositiveRate, notFoundPeriod.toNanos());
+        }
+
+        userProfiles = cache("user profile", "user-profile", UserProfile.class, USER_PROFILE_TTL, 1000, 0.3, leetCodeNotFound);
+        hackerRankProfiles = cache("HackerRank profile", "hackerrank", HackerRankProfile.class, HACKERRANK_PROFILE_TTL, 1000, 0.1, hackerRankNotFound);
+        contestHistories = cache("contest history", "contests", UserContestHistory.class, CONTEST_HISTORY_TTL, 500, 0.3, leetCodeNotFound);
+        submissions = cache("submissions", "submissions", SubmissionsEntry.class, SUBMISSIONS_TTL, 2000, 0.3, leetCodeNotFound);
+
+        // Otherwise stored entries are restored one by one on their first miss
+        if (cacheRoot.isWarmOnStartup()) {
+            int warmed = userProfiles.warm() + hackerRankProfiles.warm() + contestHistories.warm() + submissions.warm();
+            LOG.info("Warmed {} cache entries from the profile store", warmed);
+        }
 
         LOG.info("Caffeine caches initialized successfully");
     }
 
+    private <V> ManagedCache<V> cache(String displayName, String name, Class<V> type, Duration defaultTtl,
+                                      long defaultMaximumSize, double defaultBudgetShare, NotFoundFilter notFound) {
+        CacheSettings settings = settings(name, defaultTtl, defaultMaximumSize, defaultBudgetShare);
+        return new ManagedCache<>(displayName, settings, refreshExecutor,
+                cacheRoot.region(name, settings.longestTtl()), new EntryCodec<>(type, compact, jsonMapper), notFound);
+    }
+
+    // The budget left for the caches once the store's pending writes are set aside, so both together stay within it
+    private long cacheBudget() {
+        return memoryBudget > 0 ? Math.max(1, memoryBudget - cacheRoot.pendingLimit()) : 0;
+    }
+
+    private CacheSettings settings(String name, Duration defaultTtl, long defaultMaximumSize, double defaultBudgetShare) {
+        CacheSettings settings = cacheSettings.stream()
+                .filter(candidate -> candidate.getName().equals(name))
+                .findFirst()
+                .orElseGet(() -> new CacheSettings(name))
+                .withDefaults(defaultTtl, defaultMaximumSize, defaultBudgetShare)
+                .withMemoryBudget(cacheBudget());
+        LOG.info("Cache {}: soft TTL {}, hard TTL {}{}, fallback TTL {}, not-found TTL {}, bounded by {}", name,
+                settings.isRefreshAhead() ? settings.getSoftTtl() : "disabled", settings.getHardTtl(),
+                settings.isAdaptiveTtl() ? " (adaptive " + settings.getMinTtl() + " to " + settings.getMaxTtl() + ")" : "",
+                settings.getFallbackTtl(), settings.getNotFoundTtl(),
+                settings.maximumWeight() > 0 ? settings.maximumWeight() + " bytes" : settings.getMaximumSize() + " entries");
+        return settings;
+    }
+
+    // Entries stay on disk for the next start; only pending writes need flushing
     @PreDestroy
     public void shutdown() {
         LOG.info("Shutting down caches...");
-        if (userProfiles != null) userProfiles.invalidateAll();
-        if (hackerRankProfiles != null) hackerRankProfiles.invalidateAll();
-        if (contestHistories != null) contestHistories.invalidateAll();
-        if (submissions != null) submissions.invalidateAll();
+        cacheRoot.flush();
         LOG.info("Cache shutdown completed");
     }
 
     // UserProfile caching
     public UserProfile getUserProfile(String username) {
-        UserProfile profile = userProfiles.getIfPresent(username);
-        if (profile != null) {
-            LOG.debug("Cache HIT for user profile: {}", username);
-        } else {
-            LOG.debug("Cache MISS for user profile: {}", username);
-        }
-        return profile;
+        return userProfiles.getIfPresent(username);
+    }
+
+    // Non-blocking lookup of an already loaded profile; in-flight loads count as absent
+    public UserProfile peekUserProfile(String username) {
+        return userProfiles.peek(username);
     }
 
     public void cacheUserProfile(String username, UserProfile profile) {
         userProfiles.put(username, profile);
-        LOG.debug("Cached user profile: {}", username);
+    }
+
+    public UserProfile getOrLoadUserProfile(String username, Supplier<ScrapeResult<UserProfile>> loader) {
+        return userProfiles.get(username, loader);
+    }
+
+    public CompletableFuture<UserProfile> getOrLoadUserProfileAsync(String username, Supplier<CompletableFuture<ScrapeResult<UserProfile>>> loader) {
+        return userProfiles.getAsync(username, loader);
+    }
+
+    // Result variants for callers that report where a value came from: the outcome is the cached entry's, so a
+    // fallback stays a fallback on later hits and for callers that joined the load that produced it
+    public ScrapeResult<UserProfile> peekUserProfileResult(String username) {
+        return userProfiles.peekResult(username);
+    }
+
+    public CompletableFuture<ScrapeResult<UserProfile>> getOrLoadUserProfileResultAsync(String username, Supplier<CompletableFuture<ScrapeResult<UserProfile>>> loader) {
+        return userProfiles.getResultAsync(username, loader);
+    }
+
+    // Response-body variants: the cached, already serialized JSON plus its ETag
+    public EncodedResponse getOrLoadUserProfileResponse(String username, Supplier<ScrapeResult<UserProfile>> loader) {
+        return userProfiles.getEncoded(username, loader);
+    }
+
+    public EncodedResponse peekUserProfileResponse(String username) {
+        return userProfiles.peekEncoded(username);
+    }
+
+    public CompletableFuture<EncodedResponse> getOrLoadUserProfileResponseAsync(String username, Supplier<CompletableFuture<ScrapeResult<UserProfile>>> loader) {
+        return userProfiles.getEncodedAsync(username, loader);
     }
 
     // HackerRankProfile caching
     public HackerRankProfile getHackerRankProfile(String username) {
-        HackerRankProfile profile = hackerRankProfiles.getIfPresent(username);
-        if (profile != null) {
-            LOG.debug("Cache HIT for HackerRank profile: {}", username);
-        } else {
-            LOG.debug("Cache MISS for HackerRank profile: {}", username);
-        }
-        return profile;
+        return hackerRankProfiles.getIfPresent(username);
+    }
+
+    public HackerRankProfile peekHackerRankProfile(String username) {
+        return hackerRankProfiles.peek(username);
     }
 
     public void cacheHackerRankProfile(String username, HackerRankProfile profile) {
         hackerRankProfiles.put(username, profile);
-        LOG.debug("Cached HackerRank profile: {}", username);
+    }
+
+    public HackerRankProfile getOrLoadHackerRankProfile(String username, Supplier<ScrapeResult<HackerRankProfile>> loader) {
+        return hackerRankProfiles.get(username, loader);
+    }
+
+    public CompletableFuture<HackerRankProfile> getOrLoadHackerRankProfileAsync(String username, Supplier<CompletableFuture<ScrapeResult<HackerRankProfile>>> loader) {
+        return hackerRankProfiles.getAsync(username, loader);
+    }
+
+    public ScrapeResult<HackerRankProfile> peekHackerRankProfileResult(String username) {
+        return hackerRankProfiles.peekResult(username);
+    }
+
+    public CompletableFuture<ScrapeResult<HackerRankProfile>> getOrLoadHackerRankProfileResultAsync(String username, Supplier<CompletableFuture<ScrapeResult<HackerRankProfile>>> loader) {
+        return hackerRankProfiles.getResultAsync(username, loader);
+    }
+
+    public EncodedResponse peekHackerRankProfileResponse(String username) {
+        return hackerRankProfiles.peekEncoded(username);
+    }
+
+    public EncodedResponse getOrLoadHackerRankProfileResponse(String username, Supplier<ScrapeResult<HackerRankProfile>> loader) {
+        return hackerRankProfiles.getEncoded(username, loader);
+    }
+
+    public CompletableFuture<EncodedResponse> getOrLoadHackerRankProfileResponseAsync(String username, Supplier<CompletableFuture<ScrapeResult<HackerRankProfile>>> loader) {
+        return hackerRankProfiles.getEncodedAsync(username, loader);
     }
 
     // ContestHistory caching
     public UserContestHistory getContestHistory(String username) {
-        UserContestHistory history = contestHistories.getIfPresent(username);
-        if (history != null) {
-            LOG.debug("Cache HIT for contest history: {}", username);
-        } else {
-            LOG.debug("Cache MISS for contest history: {}", username);
-        }
-        return history;
+        return contestHistories.getIfPresent(username);
+    }
+
+    public UserContestHistory peekContestHistory(String username) {
+        return contestHistories.peek(username);
     }
 
     public void cacheContestHistory(String username, UserContestHistory history) {
         contestHistories.put(username, history);
-        LOG.debug("Cached contest history: {}", username);
     }
 
-    // Submissions caching
-    public List<UserSubmissions.RecentSubmission> getSubmissions(String cacheKey) {
-        List<UserSubmissions.RecentSubmission> submissionsList = submissions.getIfPresent(cacheKey);
-        if (submissionsList != null) {
-            LOG.debug("Cache HIT for submissions: {}", cacheKey);
-        } else {
-            LOG.debug("Cache MISS for submissions: {}", cacheKey);
+    public UserContestHistory getOrLoadContestHistory(String username, Supplier<ScrapeResult<UserContestHistory>> loader) {
+        return contestHistories.get(username, loader);
+    }
+
+    public CompletableFuture<UserContestHistory> getOrLoadContestHistoryAsync(String username, Supplier<CompletableFuture<ScrapeResult<UserContestHistory>>> loader) {
+        return contestHistories.getAsync(username, loader);
+    }
+
+    public ScrapeResult<UserContestHistory> peekContestHistoryResult(String username) {
+        return contestHistories.peekResult(username);
+    }
+
+    public CompletableFuture<ScrapeResult<UserContestHistory>> getOrLoadContestHistoryResultAsync(String username, Supplier<CompletableFuture<ScrapeResult<UserContestHistory>>> loader) {
+        return contestHistories.getResultAsync(username, loader);
+    }
+
+    public EncodedResponse getOrLoadContestHistoryResponse(String username, Supplier<ScrapeResult<UserContestHistory>> loader) {
+        return contestHistories.getEncoded(username, loader);
+    }
+
+    public CompletableFuture<EncodedResponse> getOrLoadContestHistoryResponseAsync(String username, Supplier<CompletableFuture<ScrapeResult<UserContestHistory>>> loader) {
+        return contestHistories.getEncodedAsync(username, loader);
+    }
+
+    // Submissions caching: one entry per user holding the longest list fetched so far. Smaller limits are
+    // served by slicing it; only a limit beyond what is held goes upstream. Loaders receive the limit to
+    // fetch, which is never less than what is already held so a refresh cannot shrink the entry.
+    public List<UserSubmissions.RecentSubmission> peekSubmissions(String username, int limit) {
+        SubmissionsEntry entry = submissions.peek(username);
+        return entry != null && entry.covers(limit) ? entry.slice(limit) : null;
+    }
+
+    public List<UserSubmissions.RecentSubmission> getSubmissions(String username, int limit) {
+        SubmissionsEntry entry = submissions.getIfPresent(username);
+        return entry != null && entry.covers(limit) ? entry.slice(limit) : null;
+    }
+
+    public void cacheSubmissions(String username, int limit, List<UserSubmissions.RecentSubmission> submissionsList) {
+        SubmissionsEntry held = submissions.peekQuietly(username);
+        if (held == null || held.fetchedLimit() <= limit) {
+            submissions.put(username, held != null && held.submissions() == submissionsList && held.fetchedLimit() == limit
+                    ? held
+                    : new SubmissionsEntry(submissionsList, limit));
         }
-        return submissionsList;
     }
 
-    public void cacheSubmissions(String cacheKey, List<UserSubmissions.RecentSubmission> submissionsList) {
-        submissions.put(cacheKey, submissionsList);
-        LOG.debug("Cached submissions: {} (count: {})", cacheKey, submissionsList.size());
+    public List<UserSubmissions.RecentSubmission> getOrLoadSubmissions(String username, int limit,
+                                                                      IntFunction<ScrapeResult<List<UserSubmissions.RecentSubmission>>> loader) {
+        SubmissionsEntry held = submissions.peekQuietly(username);
+        int fetchLimit = fetchLimit(held, limit);
+        return submissions.get(username,
+                () -> loader.apply(fetchLimit).map(list -> keepLonger(held, new SubmissionsEntry(list, fetchLimit))),
+                entry -> entry.covers(limit)).slice(limit);
+    }
+
+    public CompletableFuture<List<UserSubmissions.RecentSubmission>> getOrLoadSubmissionsAsync(String username, int limit,
+                                                                                             IntFunction<CompletableFuture<ScrapeResult<List<UserSubmissions.RecentSubmission>>>> loader) {
+        SubmissionsEntry held = submissions.peekQuietly(username);
+        int fetchLimit = fetchLimit(held, limit);
+        return submissions.getAsync(username,
+                () -> loader.apply(fetchLimit).thenApply(result -> result.map(list -> keepLonger(held, new SubmissionsEntry(list, fetchLimit)))),
+                entry -> entry.covers(limit))
+                .thenApply(entry -> entry.slice(limit));
+    }
+
+    // The held entry is captured before loading, since a reload takes it out of the cache while in flight
+    private static int fetchLimit(SubmissionsEntry held, int limit) {
+        return held != null ? Math.max(limit, held.fetchedLimit()) : limit;
+    }
+
+    // A fetch that came back shorter than the list already held (e.g. a fallback) does not replace it. Nor does
+    // the held list handed back for an unchanged response, so the cache only renews the entry it has.
+    private static SubmissionsEntry keepLonger(SubmissionsEntry held, SubmissionsEntry fetched) {
+        return held != null && (held.submissions() == fetched.submissions()
+                || held.submissions().size() > fetched.submissions().size()) ? held : fetched;
+    }
+
+    // The newest submissions of a user, as fetched with fetchedLimit. A list shorter than its limit is
+    // everything the user has, so it covers any limit. Serializable since every cached value gets an ETag.
+    @Serdeable.Serializable
+    record SubmissionsEntry(List<UserSubmissions.RecentSubmission> submissions, int fetchedLimit) {
+
+        boolean covers(int limit) {
+            return limit <= fetchedLimit || submissions.size() < fetchedLimit;
+        }
+
+        List<UserSubmissions.RecentSubmission> slice(int limit) {
+            return submissions.size() <= limit ? submissions : submissions.subList(0, limit);
+        }
+    }
+
+    // Real data already cached for a request, for a scraper to hand back when the upstream response has not
+    // changed since it was loaded. Quiet lookups: they do not count as requests.
+    public UserProfile heldUserProfile(String username) {
+        return userProfiles.peekFresh(username);
+    }
+
+    public UserContestHistory heldContestHistory(String username) {
+        return contestHistories.peekFresh(username);
+    }
+
+    // Only the list fetched with exactly this limit is the same response
+    public List<UserSubmissions.RecentSubmission> heldSubmissions(String username, int limit) {
+        SubmissionsEntry held = submissions.peekFresh(username);
+        return held != null && held.fetchedLimit() == limit ? held.submissions() : null;
+    }
+
+    public UserSnapshot heldSnapshot(String username, int submissionLimit) {
+        UserProfile profile = heldUserProfile(username);
+        UserContestHistory history = heldContestHistory(username);
+        List<UserSubmissions.RecentSubmission> recentSubmissions = heldSubmissions(username, submissionLimit);
+        return profile != null && history != null && recentSubmissions != null
+                ? new UserSnapshot(profile, history, recentSubmissions)
+                : null;
+    }
+
+    // Snapshot: served from the three caches when all are present, otherwise loaded in one upstream query
+    // whose result fills all three caches. The loader reports whether it produced real data; fallbacks
+    // are returned but not cached, and a user the upstream does not know is cached as not found in all three.
+    public CompletableFuture<UserSnapshot> getOrLoadSnapshotAsync(String username, int submissionLimit,
+                                                                  Supplier<CompletableFuture<ScrapeResult<UserSnapshot>>> loader) {
+        return userProfiles.isKnownMissing(username).thenCompose(missing -> {
+            if (missing) {
+                LOG.debug("Known missing user for snapshot: {}", username);
+                return CompletableFuture.failedFuture(new ProfileNotFoundException(username));
+            }
+            return snapshotAsync(username, submissionLimit, loader);
+        });
+    }
+
+    private CompletableFuture<UserSnapshot> snapshotAsync(String username, int submissionLimit,
+                                                          Supplier<CompletableFuture<ScrapeResult<UserSnapshot>>> loader) {
+        UserProfile profile = userProfiles.peek(username);
+        UserContestHistory history = contestHistories.peek(username);
+        List<UserSubmissions.RecentSubmission> recentSubmissions = peekSubmissions(username, submissionLimit);
+        if (profile != null && history != null && recentSubmissions != null) {
+            LOG.debug("Cache HIT for snapshot: {}", username);
+            return CompletableFuture.completedFuture(new UserSnapshot(profile, history, recentSubmissions));
+        }
+
+        CompletableFuture<UserSnapshot> promise = new CompletableFuture<>();
+        String loadKey = username + "_" + submissionLimit;
+        CompletableFuture<UserSnapshot> inFlight = snapshotLoads.putIfAbsent(loadKey, promise);
+        if (inFlight != null) {
+            LOG.debug("Joining in-flight snapshot load: {}", username);
+            return inFlight;
+        }
+
+        LOG.debug("Cache MISS for snapshot: {} - loading", username);
+        CompletableFuture<ScrapeResult<UserSnapshot>> load;
+        try {
+            load = loader.get();
+        } catch (Throwable t) {
+            load = CompletableFuture.failedFuture(t);
+        }
+        load.whenComplete((result, error) -> {
+            snapshotLoads.remove(loadKey, promise);
+            if (error != null) {
+                promise.completeExceptionally(error);
+                return;
+            }
+            if (result.isNotFound()) {
+                userProfiles.putNotFound(username);
+                contestHistories.putNotFound(username);
+                submissions.putNotFound(username);
+                promise.completeExceptionally(new ProfileNotFoundException(username));
+                return;
+            }
+            if (!result.isFallback()) {
+                cacheSnapshot(username, submissionLimit, result.value());
+            }
+            promise.complete(result.value());
+        });
+        return promise;
+    }
+
+    public void cacheSnapshot(String username, int submissionLimit, UserSnapshot snapshot) {
+        userProfiles.put(username, snapshot.profile());
+        contestHistories.put(username, snapshot.contestHistory());
+        cacheSubmissions(username, submissionLimit, snapshot.recentSubmissions());
+    }
+
+    // Pre-refresh of popular entries: the topK most requested keys of each cache whose entry expires within
+    // window, most requested first across all caches. Refreshes run in the background like refresh-ahead.
+    public List<HotKey> hotKeysExpiringWithin(int topK, Duration window) {
+        long windowMillis = window.toMillis();
+        List<HotKey> hot = new ArrayList<>();
+        addHotKeys(hot, CacheKind.USER_PROFILE, userProfiles.hottestExpiring(topK, windowMillis));
+        addHotKeys(hot, CacheKind.CONTEST_HISTORY, contestHistories.hottestExpiring(topK, windowMillis));
+        addHotKeys(hot, CacheKind.SUBMISSIONS, submissions.hottestExpiring(topK, windowMillis));
+        addHotKeys(hot, CacheKind.HACKERRANK_PROFILE, hackerRankProfiles.hottestExpiring(topK, windowMillis));
+        hot.sort(Comparator.comparingLong(HotKey::requests).reversed());
+        return hot;
+    }
+
+    private static void addHotKeys(List<HotKey> hot, CacheKind kind, List<Map.Entry<String, Long>> keys) {
+        keys.forEach(key -> hot.add(new HotKey(kind, key.getKey(), key.getValue())));
+    }
+
+    public boolean preRefreshUserProfile(String username, Supplier<CompletableFuture<ScrapeResult<UserProfile>>> loader) {
+        return userProfiles.preRefresh(username, loader);
+    }
+
+    public boolean preRefreshContestHistory(String username, Supplier<CompletableFuture<ScrapeResult<UserContestHistory>>> loader) {
+        return contestHistories.preRefresh(username, loader);
+    }
+
+    public boolean preRefreshHackerRankProfile(String username, Supplier<CompletableFuture<ScrapeResult<HackerRankProfile>>> loader) {
+        return hackerRankProfiles.preRefresh(username, loader);
+    }
+
+    // Refetches as many submissions as are held, so the refreshed entry still covers the same limits
+    public boolean preRefreshSubmissions(String username,
+                                         IntFunction<CompletableFuture<ScrapeResult<List<UserSubmissions.RecentSubmission>>>> loader) {
+        SubmissionsEntry held = submissions.peekQuietly(username);
+        if (held == null) {
+            return false;
+        }
+        int fetchLimit = held.fetchedLimit();
+        return submissions.preRefresh(username,
+                () -> loader.apply(fetchLimit).thenApply(result -> result.map(list -> keepLonger(held, new SubmissionsEntry(list, fetchLimit)))));
+    }
+
+    // Called once per pre-refresh round, so popularity reflects recent requests
+    public void decayPopularity() {
+        userProfiles.decayPopularity();
+        contestHistories.decayPopularity();
+        submissions.decayPopularity();
+        hackerRankProfiles.decayPopularity();
+    }
+
+    public enum CacheKind {
+        USER_PROFILE,
+        CONTEST_HISTORY,
+        SUBMISSIONS,
+        HACKERRANK_PROFILE
+    }
+
+    // requests is the decayed request count the key was ranked by
+    public record HotKey(CacheKind kind, String username, long requests) {
     }
 
     // Cache management
@@ -145,6 +492,27 @@ public class ProfileCacheService {
         var contestHistoryStats = contestHistories.stats();
         var submissionsStats = submissions.stats();
 
+        long upstreamLoads = userProfiles.loads() + hackerRankProfiles.loads()
+                + contestHistories.loads() + submissions.loads();
+        long coalescedRequests = userProfiles.coalescedRequests() + hackerRankProfiles.coalescedRequests()
+                + contestHistories.coalescedRequests() + submissions.coalescedRequests();
+        long backgroundRefreshes = userProfiles.refreshes() + hackerRankProfiles.refreshes()
+                + contestHistories.refreshes() + submissions.refreshes();
+        long storeHits = userProfiles.storeHits() + hackerRankProfiles.storeHits()
+                + contestHistories.storeHits() + submissions.storeHits();
+        long fallbacks = userProfiles.fallbacks() + hackerRankProfiles.fallbacks()
+                + contestHistories.fallbacks() + submissions.fallbacks();
+        long notFoundHits = userProfiles.notFoundHits() + hackerRankProfiles.notFoundHits()
+                + contestHistories.notFoundHits() + submissions.notFoundHits();
+        long changedReloads = userProfiles.changedReloads() + hackerRankProfiles.changedReloads()
+                + contestHistories.changedReloads() + submissions.changedReloads();
+        long unchangedReloads = userProfiles.unchangedReloads() + hackerRankProfiles.unchangedReloads()
+                + contestHistories.unchangedReloads() + submissions.unchangedReloads();
+        long preRefreshes = userProfiles.preRefreshes() + hackerRankProfiles.preRefreshes()
+                + contestHistories.preRefreshes() + submissions.preRefreshes();
+        long knownMissing = (leetCodeNotFound != null ? leetCodeNotFound.size() : 0)
+                + (hackerRankNotFound != null ? hackerRankNotFound.size() : 0);
+
         return new CacheStats(
                 (int) userProfiles.estimatedSize(),
                 (int) hackerRankProfiles.estimatedSize(),
@@ -152,10 +520,31 @@ public class ProfileCacheService {
                 (int) submissions.estimatedSize(),
                 userProfileStats.hitRate(),
                 userProfileStats.missRate(),
-                userProfileStats.evictionCount()
+                userProfileStats.evictionCount(),
+                upstreamLoads,
+                coalescedRequests,
+                backgroundRefreshes,
+                storeHits,
+                preRefreshes,
+                changedReloads,
+                unchangedReloads,
+                fallbacks,
+                notFoundHits,
+                knownMissing,
+                estimatedBytes(),
+                memoryBudget
         );
     }
 
+    private Map<String, Long> estimatedBytes() {
+        Map<String, Long> bytes = new LinkedHashMap<>();
+        bytes.put("userProfiles", userProfiles.estimatedBytes());
+        bytes.put("hackerRankProfiles", hackerRankProfiles.estimatedBytes());
+        bytes.put("contestHistories", contestHistories.estimatedBytes());
+        bytes.put("submissions", submissions.estimatedBytes());
+        return bytes;
+    }
+
     public void clearExpiredEntries() {
         LOG.info("Triggering cache cleanup (expired entries are automatically removed by Caffeine)...");
         userProfiles.cleanUp();
@@ -171,10 +560,15 @@ public class ProfileCacheService {
         hackerRankProfiles.invalidateAll();
         contestHistories.invalidateAll();
         submissions.invalidateAll();
+        if (leetCodeNotFound != null) {
+            leetCodeNotFound.clear();
+            hackerRankNotFound.clear();
+        }
         LOG.warn("All cache data cleared");
     }
 
     // Updated CacheStats class with additional Caffeine metrics
+    @Serdeable.Serializable
     public static class CacheStats {
         private final int userProfilesCount;
         private final int hackerRankProfilesCount;
@@ -183,10 +577,25 @@ public class ProfileCacheService {
         private final double hitRate;
         private final double missRate;
         private final long evictionCount;
+        private final long upstreamLoads;
+        private final long coalescedRequests;
+        private final long backgroundRefreshes;
+        private final long storeHits;
+        private final long preRefreshes;
+        private final long changedReloads;
+        private final long unchangedReloads;
+        private final long fallbacks;
+        private final long notFoundHits;
+        private final long knownMissingUsers;
+        private final Map<String, Long> estimatedBytes;
+        private final long memoryBudget;
 
         public CacheStats(int userProfilesCount, int hackerRankProfilesCount,
                           int contestHistoriesCount, int submissionsCount,
-                          double hitRate, double missRate, long evictionCount) {
+                          double hitRate, double missRate, long evictionCount,
+                          long upstreamLoads, long coalescedRequests, long backgroundRefreshes, long storeHits,
+                          long preRefreshes, long changedReloads, long unchangedReloads, long fallbacks, long notFoundHits, long knownMissingUsers,
+                          Map<String, Long> estimatedBytes, long memoryBudget) {
             this.userProfilesCount = userProfilesCount;
             this.hackerRankProfilesCount = hackerRankProfilesCount;
             this.contestHistoriesCount = contestHistoriesCount;
@@ -194,6 +603,18 @@ public class ProfileCacheService {
             this.hitRate = hitRate;
             this.missRate = missRate;
             this.evictionCount = evictionCount;
+            this.upstreamLoads = upstreamLoads;
+            this.coalescedRequests = coalescedRequests;
+            this.backgroundRefreshes = backgroundRefreshes;
+            this.storeHits = storeHits;
+            this.preRefreshes = preRefreshes;
+            this.changedReloads = changedReloads;
+            this.unchangedReloads = unchangedReloads;
+            this.fallbacks = fallbacks;
+            this.notFoundHits = notFoundHits;
+            this.knownMissingUsers = knownMissingUsers;
+            this.estimatedBytes = estimatedBytes;
+            this.memoryBudget = memoryBudget;
         }
 
         public int getUserProfilesCount() {
@@ -227,5 +648,72 @@ public class ProfileCacheService {
         public long getEvictionCount() {
             return evictionCount;
         }
+
+        // Loads that actually went upstream
+        public long getUpstreamLoads() {
+            return upstreamLoads;
+        }
+
+        // Requests that joined an in-flight load instead of scraping themselves (deduplicated loads)
+        public long getCoalescedRequests() {
+            return coalescedRequests;
+        }
+
+        // Stale hits that triggered a refresh-ahead scrape
+        public long getBackgroundRefreshes() {
+            return backgroundRefreshes;
+        }
+
+        // Misses served from the durable store instead of upstream
+        public long getStoreHits() {
+            return storeHits;
+        }
+
+        // Popular entries refreshed shortly before they expired
+        public long getPreRefreshes() {
+            return preRefreshes;
+        }
+
+        // Reloads of a key whose data had changed / was identical since the last load (adaptive TTL caches only)
+        public long getChangedReloads() {
+            return changedReloads;
+        }
+
+        public long getUnchangedReloads() {
+            return unchangedReloads;
+        }
+
+        // Failed scrapes whose fallback was cached for the short fallback-ttl
+        public long getFallbacks() {
+            return fallbacks;
+        }
+
+        // Lookups answered as not found from a negative entry or the not-found filter, without going upstream
+        public long getNotFoundHits() {
+            return notFoundHits;
+        }
+
+        // Usernames currently remembered by the not-found filters (approximate)
+        public long getKnownMissingUsers() {
+            return knownMissingUsers;
+        }
+
+        // Estimated in-memory size of each cache, as weighed against the memory budget
+        public Map<String, Long> getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        public long getTotalEstimatedBytes() {
+            return estimatedBytes.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        // 0 when the caches are bounded by entry count
+        public long getMemoryBudget() {
+            return memoryBudget;
+        }
+
+        public double getWaitersPerLoad() {
+            return upstreamLoads > 0 ? (double) (upstreamLoads + coalescedRequests) / upstreamLoads : 0.0;
+        }
     }
 }
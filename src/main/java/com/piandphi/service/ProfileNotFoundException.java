@@ -0,0 +1,19 @@
+package com.piandphi.service;
+
+// Raised for a username the upstream reported as nonexistent, whether just scraped or remembered by the cache
+public class ProfileNotFoundException extends RuntimeException {
+
+    public ProfileNotFoundException(String username) {
+        super("User not found: " + username);
+    }
+
+    // Anywhere in the cause chain, since futures and executors wrap it on the way out
+    public static boolean causedBy(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ProfileNotFoundException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,136 @@
+package com.piandphi.upstream;
+
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.atomic.LongAdder;
+
+// AIMD rate limit for one upstream. Every request reserves the next free send slot, spaced 1/rate apart, so
+// callers go out in the order they asked, evenly spread instead of in bursts. A 429 or 503 multiplies the
+// rate down (once per period, so one burst of rejections counts once) and a Retry-After holds every slot back
+// until it has passed, including slots handed out before it arrived: their callers recheck on waking and take a
+// new slot after the pause. Each further period of accepted responses adds increase-step back.
+final class AdaptiveRateLimiter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveRateLimiter.class);
+    // Floor for a misconfigured min-rate of 0, which would stop the upstream for good
+    private static final double LOWEST_RATE = 0.01;
+
+    private final String name;
+    private final RateLimitSettings settings;
+    private final long periodNanos;
+    private final long maxWaitNanos;
+
+    private final LongAdder throttledResponses = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    // Guarded by this
+    private double rate;
+    private long nextSlotNanos;
+    private long pausedUntilNanos;
+    private long lastIncreaseNanos;
+    private long lastDecreaseNanos;
+
+    AdaptiveRateLimiter(String name, RateLimitSettings settings) {
+        this.name = name;
+        this.settings = settings;
+        this.periodNanos = settings.getPeriod().toNanos();
+        this.maxWaitNanos = settings.getMaxWait().toNanos();
+        this.rate = clamp(settings.getInitialRate());
+        long now = System.nanoTime();
+        this.nextSlotNanos = now;
+        this.pausedUntilNanos = now;
+        this.lastIncreaseNanos = now - periodNanos;
+        this.lastDecreaseNanos = now - periodNanos;
+    }
+
+    // Nanoseconds the caller has to wait before sending
+    synchronized long reserve() {
+        long now = System.nanoTime();
+        long slot = Math.max(now, Math.max(nextSlotNanos, pausedUntilNanos));
+        long wait = slot - now;
+        if (wait > maxWaitNanos) {
+            rejections.increment();
+            throw new UpstreamThrottledException("Upstream " + name + " is rate limited, next slot in " + wait / 1_000_000 + " ms");
+        }
+        nextSlotNanos = slot + (long) (1_000_000_000L / rate);
+        return wait;
+    }
+
+    // For a caller whose slot has come: 0 to send now, or the wait for a new slot when a Retry-After arrived while
+    // it was queued, so the held-back callers go out spaced after the pause rather than all at once
+    synchronized long recheck() {
+        return System.nanoTime() >= pausedUntilNanos ? 0 : reserve();
+    }
+
+    void onResponse(HttpResponse<?> response) {
+        int status = response.code();
+        if (status == HttpStatus.TOO_MANY_REQUESTS.getCode() || status == HttpStatus.SERVICE_UNAVAILABLE.getCode()) {
+            onThrottled(retryAfter(response.getHeaders().get("Retry-After")));
+        } else if (status < 500) {
+            onAccepted();
+        }
+    }
+
+    private synchronized void onAccepted() {
+        long now = System.nanoTime();
+        if (now - lastIncreaseNanos >= periodNanos && now - lastDecreaseNanos >= periodNanos && rate < settings.getMaxRate()) {
+            rate = clamp(rate + settings.getIncreaseStep());
+            lastIncreaseNanos = now;
+        }
+    }
+
+    private synchronized void onThrottled(Duration retryAfter) {
+        throttledResponses.increment();
+        long now = System.nanoTime();
+        if (now - lastDecreaseNanos >= periodNanos) {
+            rate = clamp(rate * settings.getDecreaseFactor());
+            lastDecreaseNanos = now;
+            LOG.warn("Upstream {} is throttling, rate lowered to {} req/s{}", name, String.format("%.2f", rate),
+                    retryAfter != null ? ", paused for " + retryAfter.toMillis() + " ms" : "");
+        }
+        if (retryAfter != null) {
+            pausedUntilNanos = Math.max(pausedUntilNanos, now + retryAfter.toNanos());
+            nextSlotNanos = Math.max(nextSlotNanos, pausedUntilNanos);
+        }
+    }
+
+    synchronized double rate() {
+        return rate;
+    }
+
+    long throttledResponses() {
+        return throttledResponses.sum();
+    }
+
+    long rejections() {
+        return rejections.sum();
+    }
+
+    private double clamp(double value) {
+        return Math.max(Math.max(settings.getMinRate(), LOWEST_RATE), Math.min(settings.getMaxRate(), value));
+    }
+
+    // Delay-seconds or an HTTP date; null when absent or unreadable
+    private static Duration retryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                Duration wait = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return wait.isNegative() ? Duration.ZERO : wait;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+}
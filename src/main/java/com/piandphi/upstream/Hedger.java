@@ -0,0 +1,152 @@
+package com.piandphi.upstream;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Hedging state for one upstream: a ring of recent response latencies, the percentile threshold derived from it
+// (recomputed every tenth of the ring rather than per request) and a token budget. Every hedgeable request
+// earns budget-percent / 100 of a token and each hedge spends a whole one, so hedges stay within the budget
+// over time while still allowing a short burst when the upstream suddenly slows down.
+final class Hedger {
+
+    private static final double MAX_TOKENS = 10;
+    // Ten requests at 10% add up to 0.9999999999999999 tokens, not 1
+    private static final double ROUNDING = 1e-9;
+
+    private final HedgingSettings settings;
+    private final long minDelayNanos;
+    private final long[] latencies;
+    private final int recomputeEvery;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder wins = new LongAdder();
+
+    // Guarded by this
+    private int next;
+    private int count;
+    private int sinceRecompute;
+    private double tokens;
+
+    private volatile long thresholdNanos = -1;
+
+    Hedger(HedgingSettings settings) {
+        this.settings = settings;
+        this.minDelayNanos = settings.getMinDelay().toNanos();
+        this.latencies = new long[Math.max(10, settings.getSampleSize())];
+        this.recomputeEvery = Math.max(1, latencies.length / 10);
+    }
+
+    synchronized void record(long latencyNanos) {
+        latencies[next] = latencyNanos;
+        next = (next + 1) % latencies.length;
+        count = Math.min(count + 1, latencies.length);
+        if (++sinceRecompute >= recomputeEvery && count >= settings.getMinSamples()) {
+            sinceRecompute = 0;
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(settings.getPercentile() / 100.0 * count) - 1;
+            thresholdNanos = Math.max(minDelayNanos, sorted[Math.max(0, Math.min(count - 1, index))]);
+        }
+    }
+
+    // Delay after which to hedge this request, or -1 while there are too few samples
+    long begin() {
+        requests.increment();
+        synchronized (this) {
+            tokens = Math.min(MAX_TOKENS, tokens + settings.getBudgetPercent() / 100.0);
+        }
+        return thresholdNanos;
+    }
+
+    synchronized boolean tryHedge() {
+        if (tokens < 1 - ROUNDING) {
+            return false;
+        }
+        tokens -= 1;
+        hedges.increment();
+        return true;
+    }
+
+    // Sends the request and, when it has not answered within the threshold and the budget allows, sends it once
+    // more. The first success wins and the other request is cancelled; the call fails only once every request sent
+    // has failed. Cancelling the returned future cancels both.
+    <T> CompletableFuture<T> hedge(Supplier<CompletableFuture<T>> send) {
+        long threshold = begin();
+        if (threshold < 0) {
+            return send.get();
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicReference<CompletableFuture<T>> second = new AtomicReference<>();
+        CompletableFuture<T> first = send.get();
+        first.whenComplete((value, error) -> settle(result, pending, value, error, false));
+        Disposable timer = Mono.delay(Duration.ofNanos(threshold)).subscribe(ignored -> {
+            if (result.isDone() || !tryHedge()) {
+                return;
+            }
+            pending.incrementAndGet();
+            CompletableFuture<T> hedge;
+            try {
+                hedge = send.get();
+            } catch (RuntimeException e) {
+                hedge = CompletableFuture.failedFuture(e);
+            }
+            second.set(hedge);
+            hedge.whenComplete((value, error) -> settle(result, pending, value, error, true));
+            // Lost a race with the first request finishing or the caller cancelling
+            if (result.isDone()) {
+                hedge.cancel(false);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            timer.dispose();
+            first.cancel(false);
+            CompletableFuture<T> hedge = second.get();
+            if (hedge != null) {
+                hedge.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    private <T> void settle(CompletableFuture<T> result, AtomicInteger pending, T value, Throwable error, boolean isHedge) {
+        if (error == null) {
+            if (result.complete(value) && isHedge) {
+                hedgeWon();
+            }
+        } else if (pending.decrementAndGet() == 0) {
+            result.completeExceptionally(error);
+        }
+    }
+
+    void hedgeWon() {
+        wins.increment();
+    }
+
+    double thresholdMillis() {
+        long threshold = thresholdNanos;
+        return threshold > 0 ? threshold / 1_000_000.0 : 0.0;
+    }
+
+    long requests() {
+        return requests.sum();
+    }
+
+    long hedges() {
+        return hedges.sum();
+    }
+
+    long wins() {
+        return wins.sum();
+    }
+}
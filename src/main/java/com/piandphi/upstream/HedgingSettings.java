@@ -0,0 +1,78 @@
+package com.piandphi.upstream;
+
+import io.micronaut.context.annotation.EachProperty;
+import io.micronaut.context.annotation.Parameter;
+
+import java.time.Duration;
+
+// Per-upstream request hedging, bound from upstream.hedging.<upstream>. When a hedgeable request has not
+// answered within the percentile of recent latencies (never less than min-delay), an identical second request
+// is sent and the first response wins. Hedges are capped at budget-percent of requests.
+@EachProperty("upstream.hedging")
+public class HedgingSettings {
+
+    private final String name;
+    private boolean enabled;
+    private double percentile = 95;
+    private double budgetPercent = 5;
+    private Duration minDelay = Duration.ofMillis(50);
+    // Recent latencies the percentile is taken over, and how many are needed before hedging starts
+    private int sampleSize = 1000;
+    private int minSamples = 50;
+
+    public HedgingSettings(@Parameter String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    public double getBudgetPercent() {
+        return budgetPercent;
+    }
+
+    public void setBudgetPercent(double budgetPercent) {
+        this.budgetPercent = budgetPercent;
+    }
+
+    public Duration getMinDelay() {
+        return minDelay;
+    }
+
+    public void setMinDelay(Duration minDelay) {
+        this.minDelay = minDelay;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public void setSampleSize(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+}
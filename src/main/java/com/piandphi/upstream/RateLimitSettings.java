@@ -0,0 +1,96 @@
+package com.piandphi.upstream;
+
+import io.micronaut.context.annotation.EachProperty;
+import io.micronaut.context.annotation.Parameter;
+
+import java.time.Duration;
+
+// Per-upstream adaptive rate limit, bound from upstream.rate-limits.<upstream> (leetcode, hackerrank).
+// Requests start at initial-rate per second. Each 429/503 multiplies the rate by decrease-factor (at most once
+// per period), and each period without one adds increase-step, between min-rate and max-rate. A caller that
+// would have to wait longer than max-wait for its turn fails instead of queueing.
+@EachProperty("upstream.rate-limits")
+public class RateLimitSettings {
+
+    private final String name;
+    private boolean enabled = true;
+    private double initialRate = 10;
+    private double minRate = 1;
+    private double maxRate = 50;
+    private double increaseStep = 1;
+    private double decreaseFactor = 0.5;
+    private Duration period = Duration.ofSeconds(1);
+    private Duration maxWait = Duration.ofSeconds(10);
+
+    public RateLimitSettings(@Parameter String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getInitialRate() {
+        return initialRate;
+    }
+
+    public void setInitialRate(double initialRate) {
+        this.initialRate = initialRate;
+    }
+
+    public double getMinRate() {
+        return minRate;
+    }
+
+    public void setMinRate(double minRate) {
+        this.minRate = minRate;
+    }
+
+    public double getMaxRate() {
+        return maxRate;
+    }
+
+    public void setMaxRate(double maxRate) {
+        this.maxRate = maxRate;
+    }
+
+    public double getIncreaseStep() {
+        return increaseStep;
+    }
+
+    public void setIncreaseStep(double increaseStep) {
+        this.increaseStep = increaseStep;
+    }
+
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    public void setDecreaseFactor(double decreaseFactor) {
+        this.decreaseFactor = decreaseFactor;
+    }
+
+    public Duration getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(Duration period) {
+        this.period = period;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+}
@@ -0,0 +1,267 @@
+package com.piandphi.upstream;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MutableHttpRequest;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.micronaut.serde.annotation.Serdeable;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Shared, pooled HTTP clients for every upstream platform (configured under micronaut.http.services.*).
+// The clients live for the whole application so connections and TLS sessions are reused between scrapes.
+// Each upstream also has an adaptive rate limit (upstream.rate-limits.<name>): requests wait for their turn,
+// and 429/503 responses and Retry-After slow the upstream down until it accepts requests again.
+// Idempotent requests can be hedged (upstream.hedging.<name>), see exchangeHedgedAsync.
+@Singleton
+public class UpstreamHttpClient {
+
+    public static final String LEETCODE = "leetcode";
+    public static final String HACKERRANK = "hackerrank";
+
+    private static final Logger LOG = LoggerFactory.getLogger(UpstreamHttpClient.class);
+
+    private final Map<String, Upstream> upstreams;
+
+    public UpstreamHttpClient(@Client(id = LEETCODE) HttpClient leetCodeClient,
+                              @Client(id = HACKERRANK) HttpClient hackerRankClient,
+                              @Value("${micronaut.http.services.leetcode.pool.max-concurrent-http1-connections:32}") int leetCodePoolSize,
+                              @Value("${micronaut.http.services.hackerrank.pool.max-concurrent-http1-connections:16}") int hackerRankPoolSize,
+                              List<RateLimitSettings> rateLimits,
+                              List<HedgingSettings> hedging) {
+        this.upstreams = Map.of(
+                LEETCODE, new Upstream(LEETCODE, leetCodeClient, leetCodePoolSize,
+                        rateLimiter(LEETCODE, rateLimits), hedger(LEETCODE, hedging)),
+                HACKERRANK, new Upstream(HACKERRANK, hackerRankClient, hackerRankPoolSize,
+                        rateLimiter(HACKERRANK, rateLimits), hedger(HACKERRANK, hedging))
+        );
+    }
+
+    private static AdaptiveRateLimiter rateLimiter(String name, List<RateLimitSettings> rateLimits) {
+        RateLimitSettings settings = rateLimits.stream()
+                .filter(candidate -> candidate.getName().equals(name))
+                .findFirst()
+                .orElseGet(() -> new RateLimitSettings(name));
+        if (!settings.isEnabled()) {
+            return null;
+        }
+        LOG.info("Upstream {} rate limit: {} req/s to start, between {} and {}", name,
+                settings.getInitialRate(), settings.getMinRate(), settings.getMaxRate());
+        return new AdaptiveRateLimiter(name, settings);
+    }
+
+    private static Hedger hedger(String name, List<HedgingSettings> hedging) {
+        HedgingSettings settings = hedging.stream()
+                .filter(candidate -> candidate.getName().equals(name) && candidate.isEnabled())
+                .findFirst()
+                .orElse(null);
+        if (settings == null) {
+            return null;
+        }
+        LOG.info("Upstream {} hedging: after p{} latency (at least {} ms), up to {}% extra requests", name,
+                settings.getPercentile(), settings.getMinDelay().toMillis(), settings.getBudgetPercent());
+        return new Hedger(settings);
+    }
+
+    // Blocks the calling thread until the request's turn under the rate limit
+    public HttpResponse<String> exchange(String upstream, MutableHttpRequest<?> request) {
+        Upstream target = upstream(upstream);
+        long wait = target.reserve();
+        while (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UpstreamThrottledException("Interrupted while waiting for upstream " + upstream);
+            }
+            wait = target.recheck();
+        }
+        long start = target.begin();
+        HttpResponse<String> response = null;
+        Throwable error = null;
+        try {
+            response = target.client.toBlocking().exchange(request, String.class);
+            return response;
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            target.end(start, response, error);
+        }
+    }
+
+    // Non-blocking variant: the wait for the rate limit is a timer and the response completes on the client's
+    // event loop, so no thread waits for either. Cancelling the returned future abandons the wait or the request.
+    public CompletableFuture<HttpResponse<String>> exchangeAsync(String upstream, MutableHttpRequest<?> request) {
+        Upstream target = upstream(upstream);
+        long wait;
+        try {
+            wait = target.reserve();
+        } catch (UpstreamThrottledException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return turn(target, wait)
+                .then(Mono.defer(() -> {
+                    long start = target.begin();
+                    return Mono.from(target.client.exchange(request, String.class))
+                            .doOnSuccess(response -> target.end(start, response, null))
+                            .doOnError(error -> target.end(start, null, error))
+                            .doOnCancel(target::abandon);
+                }))
+                .toFuture();
+    }
+
+    // Waits out the slot, then rechecks it in case a Retry-After arrived in the meantime
+    private static Mono<Void> turn(Upstream target, long wait) {
+        if (wait <= 0) {
+            return Mono.empty();
+        }
+        return Mono.delay(Duration.ofNanos(wait)).then(Mono.defer(() -> turn(target, target.recheck())));
+    }
+
+    // For idempotent requests only: a slow request may be sent a second time and the first successful response
+    // wins, see Hedger.hedge. A new request is built for each send and both go through the rate limit. Without
+    // hedging configured this is plain exchangeAsync.
+    public CompletableFuture<HttpResponse<String>> exchangeHedgedAsync(String upstream, Supplier<MutableHttpRequest<?>> request) {
+        Hedger hedger = upstream(upstream).hedger;
+        if (hedger == null) {
+            return exchangeAsync(upstream, request.get());
+        }
+        return hedger.hedge(() -> exchangeAsync(upstream, request.get()));
+    }
+
+    public List<UpstreamStats> getStats() {
+        return upstreams.values().stream()
+                .map(Upstream::snapshot)
+                .toList();
+    }
+
+    private Upstream upstream(String name) {
+        Upstream upstream = upstreams.get(name);
+        if (upstream == null) {
+            throw new IllegalArgumentException("Unknown upstream: " + name);
+        }
+        return upstream;
+    }
+
+    private static final class Upstream {
+        private final String name;
+        private final HttpClient client;
+        private final int poolSize;
+        private final AdaptiveRateLimiter rateLimiter;
+        private final Hedger hedger;
+
+        // The Netty pool does not publish its lease count, so in-flight requests are used as
+        // the utilization signal: with HTTP/1.1 keep-alive each one holds exactly one connection.
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalLatencyNanos = new LongAdder();
+
+        private Upstream(String name, HttpClient client, int poolSize, AdaptiveRateLimiter rateLimiter, Hedger hedger) {
+            this.name = name;
+            this.client = client;
+            this.poolSize = poolSize;
+            this.rateLimiter = rateLimiter;
+            this.hedger = hedger;
+        }
+
+        private long reserve() {
+            return rateLimiter != null ? rateLimiter.reserve() : 0;
+        }
+
+        private long recheck() {
+            return rateLimiter != null ? rateLimiter.recheck() : 0;
+        }
+
+        private long begin() {
+            int current = inFlight.incrementAndGet();
+            peakInFlight.accumulateAndGet(current, Math::max);
+            return System.nanoTime();
+        }
+
+        // A request given up on, such as a hedging loser: it frees its slot without counting as a request,
+        // a failure or a latency sample
+        private void abandon() {
+            inFlight.decrementAndGet();
+        }
+
+        private void end(long start, HttpResponse<?> response, Throwable error) {
+            long elapsed = System.nanoTime() - start;
+            inFlight.decrementAndGet();
+            requests.increment();
+            totalLatencyNanos.add(elapsed);
+            if (rateLimiter != null) {
+                // Error statuses arrive as exceptions carrying the response
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                HttpResponse<?> observed = cause instanceof HttpClientResponseException e ? e.getResponse() : response;
+                if (observed != null) {
+                    rateLimiter.onResponse(observed);
+                }
+            }
+            if (error != null) {
+                failures.increment();
+                LOG.debug("Upstream {} request failed after {} ms", name, elapsed / 1_000_000);
+            } else if (hedger != null) {
+                hedger.record(elapsed);
+            }
+        }
+
+        private UpstreamStats snapshot() {
+            long count = requests.sum();
+            int current = inFlight.get();
+            return new UpstreamStats(
+                    name,
+                    poolSize,
+                    current,
+                    peakInFlight.get(),
+                    poolSize > 0 ? (double) current / poolSize : 0.0,
+                    count,
+                    failures.sum(),
+                    count > 0 ? totalLatencyNanos.sum() / 1_000_000.0 / count : 0.0,
+                    rateLimiter != null ? rateLimiter.rate() : 0.0,
+                    rateLimiter != null ? rateLimiter.throttledResponses() : 0,
+                    rateLimiter != null ? rateLimiter.rejections() : 0,
+                    hedger != null ? hedger.thresholdMillis() : 0.0,
+                    hedger != null ? hedger.hedges() : 0,
+                    hedger != null ? hedger.wins() : 0,
+                    hedger != null && hedger.requests() > 0 ? (double) hedger.hedges() / hedger.requests() : 0.0
+            );
+        }
+    }
+
+    @Serdeable.Serializable
+    public record UpstreamStats(
+            String name,
+            int maxConnections,
+            int inFlight,
+            int peakInFlight,
+            double poolUtilization,
+            long requests,
+            long failures,
+            double averageLatencyMs,
+            double rateLimit,
+            long throttledResponses,
+            long rateLimitRejections,
+            double hedgeThresholdMs,
+            long hedges,
+            long hedgeWins,
+            double hedgeRate
+    ) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.piandphi.upstream;
+
+// Raised instead of queueing a request whose turn under the upstream's rate limit is further away than max-wait
+public class UpstreamThrottledException extends RuntimeException {
+
+    public UpstreamThrottledException(String message) {
+        super(message);
+    }
+}
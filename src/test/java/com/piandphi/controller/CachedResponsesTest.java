@@ -0,0 +1,69 @@
+package com.piandphi.controller;
+
+import com.piandphi.service.EncodedResponse;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CachedResponsesTest {
+
+    private static final EncodedResponse RESPONSE =
+            new EncodedResponse("{\"username\":\"alice\"}".getBytes(StandardCharsets.UTF_8), "\"5f3a9c21d07e4b18\"");
+
+    private static void assertNotModified(String ifNoneMatch) {
+        HttpResponse<?> response = CachedResponses.of(RESPONSE, ifNoneMatch);
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatus(), ifNoneMatch);
+        assertFalse(response.getBody().isPresent());
+        assertEquals(RESPONSE.etag(), response.getHeaders().get(HttpHeaders.ETAG));
+    }
+
+    private static void assertOk(String ifNoneMatch) {
+        HttpResponse<?> response = CachedResponses.of(RESPONSE, ifNoneMatch);
+        assertEquals(HttpStatus.OK, response.getStatus(), String.valueOf(ifNoneMatch));
+        assertArrayEquals(RESPONSE.body(), (byte[]) response.getBody().orElseThrow());
+        assertEquals(RESPONSE.etag(), response.getHeaders().get(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void withoutIfNoneMatchTheBodyIsSentWithItsEtag() {
+        assertOk(null);
+        assertOk("");
+        assertOk("  ");
+    }
+
+    @Test
+    void matchingTagGetsNotModified() {
+        assertNotModified(RESPONSE.etag());
+    }
+
+    // If-None-Match uses the weak comparison
+    @Test
+    void weakTagMatches() {
+        assertNotModified("W/" + RESPONSE.etag());
+    }
+
+    @Test
+    void tagAnywhereInAListMatches() {
+        assertNotModified("\"0000000000000000\", " + RESPONSE.etag() + " ,\"ffffffffffffffff\"");
+    }
+
+    @Test
+    void wildcardMatches() {
+        assertNotModified("*");
+    }
+
+    @Test
+    void otherTagsGetTheBody() {
+        assertOk("\"0000000000000000\"");
+        assertOk("W/\"0000000000000000\", \"ffffffffffffffff\"");
+        // Tags are quoted strings: the bare value is a different tag
+        assertOk(RESPONSE.etag().replace("\"", ""));
+    }
+}
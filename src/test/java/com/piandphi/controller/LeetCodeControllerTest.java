@@ -0,0 +1,44 @@
+package com.piandphi.controller;
+
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Invalid limits are rejected before any cache lookup or upstream call
+@MicronautTest
+class LeetCodeControllerTest {
+
+    @Inject
+    @Client("/")
+    HttpClient client;
+
+    private static final int[] OUT_OF_RANGE = {-1, 0, 101};
+
+    @Test
+    void submissionsRejectLimitOutOfRange() {
+        for (int limit : OUT_OF_RANGE) {
+            assertBadRequest("/leetcode/user/alice/submissions?limit=" + limit);
+        }
+    }
+
+    @Test
+    void snapshotRejectsLimitOutOfRange() {
+        for (int limit : OUT_OF_RANGE) {
+            assertBadRequest("/leetcode/user/alice/snapshot?limit=" + limit);
+        }
+    }
+
+    private void assertBadRequest(String uri) {
+        HttpClientResponseException e = assertThrows(HttpClientResponseException.class,
+                () -> client.toBlocking().exchange(HttpRequest.GET(uri)));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+}
@@ -0,0 +1,195 @@
+package com.piandphi.grpc;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkLookupCallTest {
+
+    private final FakeResponses responses = new FakeResponses();
+    private final List<Integer> pulls = new ArrayList<>();
+    private final Map<String, CompletableFuture<BulkLookupResponse>> loads = new ConcurrentHashMap<>();
+
+    private static BulkLookupRequest request(String username) {
+        return BulkLookupRequest.newBuilder().setUsername(username).setKind(BulkKind.USER_PROFILE).build();
+    }
+
+    private static BulkLookupResponse response(BulkLookupRequest request, BulkLookupResponse.Status status) {
+        return BulkLookupResponse.newBuilder()
+                .setUsername(request.getUsername())
+                .setKind(request.getKind())
+                .setStatus(status)
+                .build();
+    }
+
+    // Usernames starting with "hit" are cached, the rest are loaded through a future the test completes
+    private BulkLookupCall call(int concurrency, int buffer) {
+        BulkLookupCall call = new BulkLookupCall(responses, concurrency, buffer,
+                request -> request.getUsername().startsWith("hit") ? response(request, BulkLookupResponse.Status.HIT) : null,
+                request -> loads.computeIfAbsent(request.getUsername(), name -> new CompletableFuture<>()));
+        call.start(pulls::add);
+        return call;
+    }
+
+    private void complete(String username) {
+        loads.get(username).complete(response(request(username), BulkLookupResponse.Status.FRESH));
+    }
+
+    @Test
+    void slowClientStopsThePull() {
+        responses.ready = false;
+        BulkLookupCall call = call(2, 4);
+        assertEquals(List.of(4), pulls);
+
+        for (int i = 0; i < 4; i++) {
+            call.accept(request("hit" + i));
+        }
+        assertTrue(responses.written.isEmpty());
+        assertEquals(List.of(4), pulls);
+
+        responses.becomeReady();
+        assertEquals(4, responses.written.size());
+        assertEquals(List.of(4, 4), pulls);
+    }
+
+    @Test
+    void missesGoUpstreamAtMostConcurrencyAtATime() {
+        BulkLookupCall call = call(2, 8);
+        for (String username : List.of("a", "b", "c", "d")) {
+            call.accept(request(username));
+        }
+        assertEquals(2, loads.size());
+
+        complete("a");
+        assertEquals(3, loads.size());
+        assertTrue(loads.containsKey("c"));
+        assertEquals(List.of("a"), responses.usernames());
+    }
+
+    @Test
+    void hitsAreWrittenBeforePendingMisses() {
+        BulkLookupCall call = call(1, 8);
+        call.accept(request("slow"));
+        call.accept(request("hit1"));
+        call.accept(request("hit2"));
+
+        assertEquals(List.of("hit1", "hit2"), responses.usernames());
+        complete("slow");
+        assertEquals(List.of("hit1", "hit2", "slow"), responses.usernames());
+    }
+
+    @Test
+    void completesOnceInputEndsAndEverythingIsWritten() {
+        BulkLookupCall call = call(2, 4);
+        call.accept(request("a"));
+        call.inputCompleted();
+        assertFalse(responses.completed);
+
+        complete("a");
+        assertTrue(responses.completed);
+        assertEquals(1, responses.written.size());
+    }
+
+    @Test
+    void failedLoadIsWrittenAsAnError() {
+        BulkLookupCall call = call(2, 4);
+        call.accept(request("a"));
+        loads.get("a").completeExceptionally(new IllegalStateException("upstream down"));
+
+        assertEquals(BulkLookupResponse.Status.ERROR, responses.written.get(0).getStatus());
+        assertEquals("upstream down", responses.written.get(0).getError());
+    }
+
+    @Test
+    void cancelledCallWritesNothingMore() {
+        BulkLookupCall call = call(2, 4);
+        call.accept(request("a"));
+        responses.cancel();
+
+        complete("a");
+        call.accept(request("hit1"));
+        assertTrue(responses.written.isEmpty());
+        assertFalse(responses.completed);
+    }
+
+    private static final class FakeResponses extends ServerCallStreamObserver<BulkLookupResponse> {
+
+        final List<BulkLookupResponse> written = new ArrayList<>();
+        boolean ready = true;
+        boolean completed;
+        private Runnable onReady;
+        private Runnable onCancel;
+
+        void becomeReady() {
+            ready = true;
+            onReady.run();
+        }
+
+        void cancel() {
+            onCancel.run();
+        }
+
+        List<String> usernames() {
+            return written.stream().map(BulkLookupResponse::getUsername).toList();
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {
+            this.onReady = onReadyHandler;
+        }
+
+        @Override
+        public void setOnCancelHandler(Runnable onCancelHandler) {
+            this.onCancel = onCancelHandler;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public void setCompression(String compression) {
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+
+        @Override
+        public void request(int count) {
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {
+        }
+
+        @Override
+        public void onNext(BulkLookupResponse value) {
+            written.add(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onCompleted() {
+            completed = true;
+        }
+    }
+}
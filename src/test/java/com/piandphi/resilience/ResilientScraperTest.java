@@ -0,0 +1,87 @@
+package com.piandphi.resilience;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResilientScraperTest {
+
+    private final ExecutorService attempts = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        attempts.shutdownNow();
+    }
+
+    private ResilientScraper<String> scraper(Duration deadline, Duration initialBackoff) {
+        ResilienceSettings settings = new ResilienceSettings("test");
+        settings.setDeadline(deadline);
+        settings.setInitialBackoff(initialBackoff);
+        settings.setJitter(0);
+        return new ResilientScraper<>("test", settings, null, attempts);
+    }
+
+    @Test
+    void blockingAttemptIsCutOffAtTheDeadline() {
+        ResilientScraper<String> scraper = scraper(Duration.ofMillis(100), Duration.ofMillis(10));
+
+        long start = System.nanoTime();
+        ScrapeResult<String> result = scraper.executeForResult(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "late";
+        }, () -> "fallback");
+
+        assertTrue(result.isFallback());
+        assertEquals("fallback", result.value());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void failedAttemptIsRetriedAfterItsBackoff() {
+        ResilientScraper<String> scraper = scraper(Duration.ofSeconds(5), Duration.ofMillis(10));
+        AtomicInteger calls = new AtomicInteger();
+
+        ScrapeResult<String> result = scraper.executeForResult(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("first attempt fails");
+            }
+            return "fresh";
+        }, () -> "fallback");
+
+        assertFalse(result.isFallback());
+        assertEquals("fresh", result.value());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void backoffPastTheDeadlineFallsBackWithoutWaiting() {
+        ResilientScraper<String> scraper = scraper(Duration.ofMillis(200), Duration.ofSeconds(5));
+        AtomicInteger calls = new AtomicInteger();
+
+        long start = System.nanoTime();
+        ScrapeResult<String> result = scraper.executeForResult(() -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("always fails");
+        }, () -> "fallback");
+
+        assertTrue(result.isFallback());
+        assertEquals(1, calls.get());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,138 @@
+package com.piandphi.scraper;
+
+import com.piandphi.model.UserProfile;
+import com.piandphi.resilience.UserNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Golden tests: recorded GraphQL responses (src/test/resources/leetcode) parsed by the streaming parser must give
+// the same records as the tree-based parsing it replaced. Errors fail both; the streaming parser additionally
+// reports a user LeetCode does not know as UserNotFoundException.
+class LeetCodeResponseParserTest {
+
+    static String fixture(String name) {
+        try (InputStream in = LeetCodeResponseParserTest.class.getResourceAsStream("/leetcode/" + name)) {
+            assertNotNull(in, "missing fixture " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    void userProfile() throws Exception {
+        String body = fixture("user-profile.json");
+        UserProfile profile = LeetCodeResponseParser.parseUserProfile(body);
+
+        assertEquals(TreeResponseParser.parseUserProfile(body), profile);
+        assertEquals("alice", profile.username());
+        assertEquals(4, profile.submitStats().acSubmissionNum().size());
+    }
+
+    // Nulls, missing fields, unknown fields at every level and values of the wrong type
+    @Test
+    void userProfileWithNullMissingAndUnknownFields() throws Exception {
+        String body = fixture("user-profile-sparse.json");
+
+        assertEquals(TreeResponseParser.parseUserProfile(body), LeetCodeResponseParser.parseUserProfile(body));
+    }
+
+    @Test
+    void userProfileWithNullSections() throws Exception {
+        String body = fixture("user-profile-no-profile.json");
+
+        assertEquals(TreeResponseParser.parseUserProfile(body), LeetCodeResponseParser.parseUserProfile(body));
+    }
+
+    @Test
+    void unknownUserWithError() {
+        String body = fixture("user-profile-not-found.json");
+
+        assertThrows(IOException.class, () -> TreeResponseParser.parseUserProfile(body));
+        assertThrows(UserNotFoundException.class, () -> LeetCodeResponseParser.parseUserProfile(body));
+    }
+
+    @Test
+    void nullMatchedUserWithoutErrors() {
+        String body = fixture("user-profile-null.json");
+
+        assertThrows(IOException.class, () -> TreeResponseParser.parseUserProfile(body));
+        assertThrows(UserNotFoundException.class, () -> LeetCodeResponseParser.parseUserProfile(body));
+    }
+
+    // Any other error fails the query as retryable, even with a user in data
+    @Test
+    void otherErrorsFailTheQuery() {
+        String body = fixture("user-profile-error.json");
+
+        assertThrows(IOException.class, () -> TreeResponseParser.parseUserProfile(body));
+        IOException error = assertThrows(IOException.class, () -> LeetCodeResponseParser.parseUserProfile(body));
+        assertFalse(error instanceof UserNotFoundException);
+        assertTrue(error.getMessage().contains("Internal server error"), error.getMessage());
+    }
+
+    @Test
+    void contestHistory() throws Exception {
+        for (String name : List.of("contest-history.json", "contest-history-sparse.json", "contest-history-empty.json")) {
+            String body = fixture(name);
+            assertEquals(TreeResponseParser.parseContestHistory(body), LeetCodeResponseParser.parseContestHistory(body), name);
+        }
+    }
+
+    @Test
+    void recentSubmissions() throws Exception {
+        String body = fixture("recent-submissions.json");
+
+        assertEquals(TreeResponseParser.parseRecentSubmissions(body), LeetCodeResponseParser.parseRecentSubmissions(body));
+    }
+
+    @Test
+    void recentSubmissionsWithErrorsAndNullData() {
+        String body = fixture("recent-submissions-errors.json");
+
+        assertThrows(IOException.class, () -> TreeResponseParser.parseRecentSubmissions(body));
+        IOException error = assertThrows(IOException.class, () -> LeetCodeResponseParser.parseRecentSubmissions(body));
+        assertFalse(error instanceof UserNotFoundException);
+    }
+
+    @Test
+    void snapshot() throws Exception {
+        String body = fixture("snapshot.json");
+
+        assertEquals(TreeResponseParser.parseSnapshot(body), LeetCodeResponseParser.parseSnapshot(body));
+    }
+
+    @Test
+    void snapshotOfUnknownUser() {
+        String body = fixture("snapshot-not-found.json");
+
+        assertThrows(IOException.class, () -> TreeResponseParser.parseSnapshot(body));
+        assertThrows(UserNotFoundException.class, () -> LeetCodeResponseParser.parseSnapshot(body));
+    }
+
+    @Test
+    void batchedUserProfiles() throws Exception {
+        String body = fixture("batched-user-profiles.json");
+        List<String> usernames = List.of("alice", "bob", "carol");
+
+        Map<String, UserProfile> expected = TreeResponseParser.parseBatchedUserProfiles(body, usernames);
+        GraphQLBatcher.BatchResult<UserProfile> actual = LeetCodeResponseParser.parseBatchedUserProfiles(body, usernames);
+
+        assertEquals(expected, actual.values());
+        assertEquals(1, actual.failures().size());
+        assertInstanceOf(UserNotFoundException.class, actual.failures().get("bob"));
+    }
+}
@@ -0,0 +1,78 @@
+package com.piandphi.scraper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ResponseReuseTest {
+
+    private static final String BODY = "{\"data\":{\"matchedUser\":{\"username\":\"alice\"}}}";
+
+    private final AtomicInteger parses = new AtomicInteger();
+
+    private String parse(String body) {
+        parses.incrementAndGet();
+        return new String(body);
+    }
+
+    @Test
+    void unchangedBodyReturnsTheHeldValue() throws Exception {
+        ResponseReuse reuse = new ResponseReuse(100);
+        String first = reuse.parseOrReuse("k", BODY, this::parse, () -> null);
+        String held = "held";
+
+        assertSame(held, reuse.parseOrReuse("k", BODY, this::parse, () -> held));
+        assertEquals(1, parses.get());
+        assertEquals(BODY, first);
+    }
+
+    @Test
+    void unchangedBodyWithNothingHeldIsParsedAgain() throws Exception {
+        ResponseReuse reuse = new ResponseReuse(100);
+        reuse.parseOrReuse("k", BODY, this::parse, () -> null);
+
+        assertEquals(BODY, reuse.parseOrReuse("k", BODY, this::parse, () -> null));
+        assertEquals(2, parses.get());
+    }
+
+    @Test
+    void changedBodyIsParsed() throws Exception {
+        ResponseReuse reuse = new ResponseReuse(100);
+        reuse.parseOrReuse("k", BODY, this::parse, () -> "held");
+        String changed = BODY.replace("alice", "alicf");
+
+        assertEquals(changed, reuse.parseOrReuse("k", changed, this::parse, () -> "held"));
+        assertEquals(2, parses.get());
+    }
+
+    @Test
+    void sameBodyUnderAnotherKeyIsParsed() throws Exception {
+        ResponseReuse reuse = new ResponseReuse(100);
+        reuse.parseOrReuse("a", BODY, this::parse, () -> "held");
+
+        assertEquals(BODY, reuse.parseOrReuse("b", BODY, this::parse, () -> "held"));
+        assertEquals(2, parses.get());
+    }
+
+    @Test
+    void keyCoversEveryVariable() {
+        assertEquals("recentSubmissions{limit=20, username=alice}",
+                ResponseReuse.key("recentSubmissions", Map.of("username", "alice", "limit", 20)));
+        assertNotEquals(ResponseReuse.key("recentSubmissions", Map.of("username", "alice", "limit", 20)),
+                ResponseReuse.key("recentSubmissions", Map.of("username", "alice", "limit", 50)));
+        assertNull(ResponseReuse.key("batchedUserPublicProfiles", Map.of("u0", "alice", "u1", "bob")));
+    }
+
+    @Test
+    void hashFollowsTheChars() {
+        assertEquals(ResponseReuse.hash(BODY), ResponseReuse.hash(new String(BODY)));
+        assertNotEquals(ResponseReuse.hash("ab"), ResponseReuse.hash("ba"));
+        assertNotEquals(ResponseReuse.hash("\u00e9"), ResponseReuse.hash("e"));
+    }
+}
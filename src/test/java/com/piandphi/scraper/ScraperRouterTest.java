@@ -0,0 +1,70 @@
+package com.piandphi.scraper;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ScraperRouterTest {
+
+    private static ScraperRouter router(int concurrency, Duration timeout) {
+        PlatformSettings settings = new PlatformSettings(ScraperRouter.LEETCODE);
+        settings.setConcurrency(concurrency);
+        settings.setTimeout(timeout);
+        return new ScraperRouter(List.of(), List.of(settings));
+    }
+
+    private static ScraperRouter.PlatformStats stats(ScraperRouter router) {
+        return router.getStats().get(0);
+    }
+
+    @Test
+    void timedOutFetchKeepsItsPermitUntilItCompletes() throws Exception {
+        ScraperRouter router = router(1, Duration.ofMillis(50));
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = router.isolate(ScraperRouter.LEETCODE, () -> upstream);
+        ExecutionException timedOut = assertThrows(ExecutionException.class, first::get);
+        assertInstanceOf(TimeoutException.class, timedOut.getCause());
+        assertEquals(1, stats(router).activeFetches());
+
+        CompletableFuture<String> second = router.isolate(ScraperRouter.LEETCODE, () -> CompletableFuture.completedFuture("b"));
+        ExecutionException rejected = assertThrows(ExecutionException.class, second::get);
+        assertInstanceOf(BulkheadFullException.class, rejected.getCause());
+
+        upstream.complete("a");
+        assertEquals(0, stats(router).activeFetches());
+        assertEquals("c", router.isolate(ScraperRouter.LEETCODE, () -> CompletableFuture.completedFuture("c")).get());
+        assertEquals(1, stats(router).timeouts());
+        assertEquals(1, stats(router).rejected());
+    }
+
+    @Test
+    void timeoutDoesNotCompleteTheSharedFuture() {
+        ScraperRouter router = router(2, Duration.ofMillis(20));
+        CompletableFuture<String> shared = new CompletableFuture<>();
+
+        assertThrows(ExecutionException.class, () -> router.isolate(ScraperRouter.LEETCODE, () -> shared).get());
+        assertFalse(shared.isDone());
+    }
+
+    @Test
+    void failingSupplierReleasesItsPermit() {
+        ScraperRouter router = router(1, Duration.ofSeconds(1));
+
+        CompletableFuture<String> failed = router.isolate(ScraperRouter.LEETCODE, () -> {
+            throw new IllegalStateException("boom");
+        });
+        assertThrows(ExecutionException.class, failed::get);
+        assertEquals(0, stats(router).activeFetches());
+    }
+}
@@ -0,0 +1,254 @@
+package com.piandphi.scraper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.piandphi.model.UserContestHistory;
+import com.piandphi.model.UserProfile;
+import com.piandphi.model.UserSnapshot;
+import com.piandphi.model.UserSubmissions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// The ObjectMapper/readTree parsing LeetCodeScraper used before LeetCodeResponseParser, kept as the reference the
+// golden tests compare the streaming parser against. A new ObjectMapper per call, as the scraper did.
+final class TreeResponseParser {
+
+    private TreeResponseParser() {
+    }
+
+    static UserProfile parseUserProfile(String responseBody) throws IOException {
+        JsonNode jsonResponse = new ObjectMapper().readTree(responseBody);
+        if (jsonResponse.has("errors") && jsonResponse.get("errors").isArray()) {
+            throw new IOException("GraphQL query returned errors: " + jsonResponse.get("errors"));
+        }
+        JsonNode matchedUser = jsonResponse.path("data").path("matchedUser");
+        if (matchedUser.isMissingNode() || matchedUser.isNull()) {
+            throw new IOException("User not found");
+        }
+        return parseMatchedUser(matchedUser);
+    }
+
+    // A null alias means that user does not exist; the others are still returned
+    static Map<String, UserProfile> parseBatchedUserProfiles(String responseBody, List<String> usernames) throws IOException {
+        JsonNode jsonResponse = new ObjectMapper().readTree(responseBody);
+        JsonNode data = jsonResponse.path("data");
+        if (data.isMissingNode() || data.isNull()) {
+            throw new IOException("GraphQL query returned errors: " + jsonResponse.get("errors"));
+        }
+        Map<String, UserProfile> result = new HashMap<>();
+        for (int i = 0; i < usernames.size(); i++) {
+            JsonNode matchedUser = data.path("u" + i);
+            if (!matchedUser.isMissingNode() && !matchedUser.isNull()) {
+                result.put(usernames.get(i), parseMatchedUser(matchedUser));
+            }
+        }
+        return result;
+    }
+
+    static UserSnapshot parseSnapshot(String responseBody) throws IOException {
+        JsonNode jsonResponse = new ObjectMapper().readTree(responseBody);
+        if (jsonResponse.has("errors") && jsonResponse.get("errors").isArray()) {
+            throw new IOException("GraphQL query returned errors: " + jsonResponse.get("errors"));
+        }
+        JsonNode data = jsonResponse.path("data");
+        JsonNode matchedUser = data.path("matchedUser");
+        if (matchedUser.isMissingNode() || matchedUser.isNull()) {
+            throw new IOException("User not found");
+        }
+        return new UserSnapshot(parseMatchedUser(matchedUser), parseContestHistoryData(data),
+                parseRecentSubmissionList(data.path("recentSubmissionList")));
+    }
+
+    static UserContestHistory parseContestHistory(String responseBody) throws IOException {
+        JsonNode jsonResponse = new ObjectMapper().readTree(responseBody);
+        if (jsonResponse.has("errors") && jsonResponse.get("errors").isArray()) {
+            throw new IOException("GraphQL query returned errors: " + jsonResponse.get("errors"));
+        }
+        return parseContestHistoryData(jsonResponse.path("data"));
+    }
+
+    static List<UserSubmissions.RecentSubmission> parseRecentSubmissions(String responseBody) throws IOException {
+        JsonNode jsonResponse = new ObjectMapper().readTree(responseBody);
+        if (jsonResponse.has("errors") && jsonResponse.get("errors").isArray()) {
+            throw new IOException("GraphQL query returned errors: " + jsonResponse.get("errors"));
+        }
+        return parseRecentSubmissionList(jsonResponse.path("data").path("recentSubmissionList"));
+    }
+
+    private static UserProfile parseMatchedUser(JsonNode matchedUser) {
+        JsonNode profileNode = matchedUser.path("profile");
+        UserProfile.Profile profile = new UserProfile.Profile(
+                getTextValue(profileNode, "userAvatar"),
+                getTextValue(profileNode, "realName"),
+                parseStringList(profileNode, "websites"),
+                getTextValue(profileNode, "countryName"),
+                getTextValue(profileNode, "company"),
+                getTextValue(profileNode, "jobTitle"),
+                parseStringList(profileNode, "skillTags"),
+                getTextValue(profileNode, "school"),
+                getTextValue(profileNode, "aboutMe"),
+                getIntegerValue(profileNode, "postViewCount").orElse(null),
+                getIntegerValue(profileNode, "postViewCountDiff").orElse(null),
+                getIntegerValue(profileNode, "reputation").orElse(null),
+                getIntegerValue(profileNode, "ranking").orElse(null),
+                getIntegerValue(profileNode, "reputationDiff").orElse(null),
+                getIntegerValue(profileNode, "solutionCount").orElse(null),
+                getIntegerValue(profileNode, "solutionCountDiff").orElse(null),
+                getIntegerValue(profileNode, "categoryDiscussCount").orElse(null),
+                getIntegerValue(profileNode, "categoryDiscussCountDiff").orElse(null),
+                getTextValue(profileNode, "certificationLevel")
+        );
+
+        UserProfile.SubmitStats submitStats = null;
+        JsonNode submitStatsNode = matchedUser.path("submitStats");
+        if (!submitStatsNode.isMissingNode() && !submitStatsNode.isNull()) {
+            submitStats = new UserProfile.SubmitStats(
+                    parseSubmissionCounts(submitStatsNode.path("acSubmissionNum")),
+                    parseSubmissionCounts(submitStatsNode.path("totalSubmissionNum")));
+        }
+
+        UserProfile.ContestBadge contestBadge = null;
+        JsonNode contestBadgeNode = matchedUser.path("contestBadge");
+        if (!contestBadgeNode.isMissingNode() && !contestBadgeNode.isNull()) {
+            contestBadge = new UserProfile.ContestBadge(
+                    getTextValue(contestBadgeNode, "name"),
+                    contestBadgeNode.path("expired").isBoolean() ? contestBadgeNode.path("expired").asBoolean() : null,
+                    getTextValue(contestBadgeNode, "hoverText"),
+                    getTextValue(contestBadgeNode, "icon")
+            );
+        }
+
+        return new UserProfile(
+                getTextValue(matchedUser, "username"),
+                getTextValue(matchedUser, "githubUrl"),
+                getTextValue(matchedUser, "twitterUrl"),
+                getTextValue(matchedUser, "linkedinUrl"),
+                profile,
+                submitStats,
+                contestBadge
+        );
+    }
+
+    private static UserContestHistory parseContestHistoryData(JsonNode data) {
+        JsonNode contestRankingNode = data.path("userContestRanking");
+        JsonNode contestHistoryNode = data.path("userContestRankingHistory");
+
+        UserContestHistory.UserContestRanking userContestRanking = null;
+        if (!contestRankingNode.isMissingNode() && !contestRankingNode.isNull()) {
+            UserContestHistory.Badge badge = null;
+            JsonNode badgeNode = contestRankingNode.path("badge");
+            if (!badgeNode.isMissingNode() && !badgeNode.isNull()) {
+                badge = new UserContestHistory.Badge(getTextValue(badgeNode, "name"));
+            }
+            userContestRanking = new UserContestHistory.UserContestRanking(
+                    getIntegerValue(contestRankingNode, "attendedContestsCount").orElse(null),
+                    contestRankingNode.path("rating").isNumber() ? contestRankingNode.path("rating").asDouble() : null,
+                    getIntegerValue(contestRankingNode, "globalRanking").orElse(null),
+                    getIntegerValue(contestRankingNode, "totalParticipants").orElse(null),
+                    contestRankingNode.path("topPercentage").isNumber() ? contestRankingNode.path("topPercentage").asDouble() : null,
+                    badge
+            );
+        }
+
+        List<UserContestHistory.ContestHistoryEntry> contestHistoryList = new ArrayList<>();
+        if (contestHistoryNode.isArray()) {
+            for (JsonNode item : contestHistoryNode) {
+                UserContestHistory.Contest contest = null;
+                JsonNode contestNode = item.path("contest");
+                if (!contestNode.isMissingNode() && !contestNode.isNull()) {
+                    contest = new UserContestHistory.Contest(getTextValue(contestNode, "title"), getTextValue(contestNode, "startTime"));
+                }
+                contestHistoryList.add(new UserContestHistory.ContestHistoryEntry(
+                        item.path("attended").isBoolean() ? item.path("attended").asBoolean() : null,
+                        getTextValue(item, "trendDirection"),
+                        getIntegerValue(item, "problemsSolved").orElse(null),
+                        getIntegerValue(item, "totalProblems").orElse(null),
+                        getIntegerValue(item, "finishTimeInSeconds").orElse(null),
+                        item.path("rating").isNumber() ? item.path("rating").asDouble() : null,
+                        getIntegerValue(item, "ranking").orElse(null),
+                        contest
+                ));
+            }
+        }
+        return new UserContestHistory(userContestRanking, contestHistoryList);
+    }
+
+    private static List<UserSubmissions.RecentSubmission> parseRecentSubmissionList(JsonNode recentSubmissionsNode) {
+        List<UserSubmissions.RecentSubmission> result = new ArrayList<>();
+        if (recentSubmissionsNode.isArray()) {
+            for (JsonNode item : recentSubmissionsNode) {
+                List<UserSubmissions.TopicTag> topicTags = new ArrayList<>();
+                JsonNode topicTagsNode = item.path("topicTags");
+                if (topicTagsNode.isArray()) {
+                    for (JsonNode tagNode : topicTagsNode) {
+                        topicTags.add(new UserSubmissions.TopicTag(getTextValue(tagNode, "id")));
+                    }
+                }
+                result.add(new UserSubmissions.RecentSubmission(
+                        getTextValue(item, "id"),
+                        getTextValue(item, "title"),
+                        getTextValue(item, "titleSlug"),
+                        getTextValue(item, "timestamp"),
+                        getTextValue(item, "status"),
+                        getTextValue(item, "statusDisplay"),
+                        getTextValue(item, "lang"),
+                        getTextValue(item, "url"),
+                        getTextValue(item, "langName"),
+                        getTextValue(item, "runtime"),
+                        item.path("isPending").isBoolean() ? item.path("isPending").asBoolean() : null,
+                        getTextValue(item, "memory"),
+                        item.path("hasNotes").isBoolean() ? item.path("hasNotes").asBoolean() : null,
+                        getTextValue(item, "notes"),
+                        getTextValue(item, "flagType"),
+                        getTextValue(item, "frontendId"),
+                        topicTags
+                ));
+            }
+        }
+        return result;
+    }
+
+    private static List<UserProfile.SubmissionCount> parseSubmissionCounts(JsonNode arrayNode) {
+        List<UserProfile.SubmissionCount> result = new ArrayList<>();
+        if (arrayNode.isArray()) {
+            for (JsonNode item : arrayNode) {
+                String difficulty = getTextValue(item, "difficulty");
+                Integer count = item.path("count").isInt() ? item.path("count").asInt() : null;
+                Integer submissions = item.path("submissions").isInt() ? item.path("submissions").asInt() : null;
+                if (difficulty != null) {
+                    result.add(new UserProfile.SubmissionCount(difficulty, count, submissions));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String getTextValue(JsonNode node, String fieldName) {
+        JsonNode field = node.path(fieldName);
+        return field.isMissingNode() || field.isNull() ? null : field.asText();
+    }
+
+    private static Optional<Integer> getIntegerValue(JsonNode node, String fieldName) {
+        JsonNode field = node.path(fieldName);
+        return field.isMissingNode() || field.isNull() ? Optional.empty() : Optional.of(field.asInt());
+    }
+
+    private static List<String> parseStringList(JsonNode node, String fieldName) {
+        JsonNode arrayNode = node.path(fieldName);
+        if (arrayNode.isMissingNode() || arrayNode.isNull() || !arrayNode.isArray()) {
+            return List.of();
+        }
+        List<String> result = new ArrayList<>();
+        for (JsonNode item : arrayNode) {
+            if (!item.isNull()) {
+                result.add(item.asText());
+            }
+        }
+        return result;
+    }
+}
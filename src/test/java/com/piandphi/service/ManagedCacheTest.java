@@ -0,0 +1,206 @@
+package com.piandphi.service;
+
+import com.piandphi.cache.ProfileCacheRoot;
+import com.piandphi.resilience.ScrapeResult;
+import io.micronaut.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ManagedCacheTest {
+
+    private static final long MINUTE = Duration.ofMinutes(1).toMillis();
+
+    private static CacheSettings settings() {
+        CacheSettings settings = new CacheSettings("test");
+        settings.setHardTtl(Duration.ofMinutes(10));
+        return settings.withDefaults(Duration.ofMinutes(10), 1000, 0.1).withMemoryBudget(0);
+    }
+
+    // Plain String values, the durable store disabled and no not-found filter
+    private static ManagedCache<String> cache(CacheSettings settings) {
+        ProfileCacheRoot root = new ProfileCacheRoot(false, false, "storage", 0);
+        return cache(settings, root.region("test", settings.longestTtl()));
+    }
+
+    private static CacheSettings adaptiveSettings() {
+        CacheSettings settings = settings();
+        settings.setMinTtl(Duration.ofMinutes(1));
+        settings.setMaxTtl(Duration.ofMinutes(60));
+        return settings;
+    }
+
+    // The TTL each load got is read back from the store's pending writes, which are never flushed here
+    private static ProfileCacheRoot.Region store(CacheSettings settings) throws IOException {
+        ProfileCacheRoot root = new ProfileCacheRoot(true, false,
+                Files.createTempDirectory("managed-cache").toString(), 1 << 20);
+        return root.region("test", settings.longestTtl());
+    }
+
+    private static ManagedCache<String> cache(CacheSettings settings, ProfileCacheRoot.Region store) {
+        return new ManagedCache<>("test", settings, Runnable::run, store,
+                new EntryCodec<>(String.class, false, JsonMapper.createDefault()), null);
+    }
+
+    private static long ttlMinutes(ProfileCacheRoot.Region store, String key) {
+        return store.get(key).ttlMillis() / MINUTE;
+    }
+
+    private static void request(ManagedCache<String> cache, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            cache.get(key, () -> ScrapeResult.fresh(key.toUpperCase()));
+        }
+    }
+
+    private static List<String> keys(List<Map.Entry<String, Long>> hot) {
+        return hot.stream().map(Map.Entry::getKey).toList();
+    }
+
+    @Test
+    void hottestKeysExpiringWithinTheWindowComeFirst() {
+        ManagedCache<String> cache = cache(settings());
+        request(cache, "b", 2);
+        request(cache, "a", 3);
+        request(cache, "c", 1);
+
+        List<Map.Entry<String, Long>> hot = cache.hottestExpiring(10, 11 * MINUTE);
+        assertEquals(List.of("a", "b", "c"), keys(hot));
+        assertEquals(List.of(3L, 2L, 1L), hot.stream().map(Map.Entry::getValue).toList());
+    }
+
+    @Test
+    void entriesNotExpiringWithinTheWindowAreSkipped() {
+        ManagedCache<String> cache = cache(settings());
+        request(cache, "a", 3);
+
+        assertTrue(cache.hottestExpiring(10, 9 * MINUTE).isEmpty());
+    }
+
+    // The limit picks the most requested keys before the expiry check, so cold keys never fill it up
+    @Test
+    void limitAppliesToTheMostRequestedKeys() {
+        ManagedCache<String> cache = cache(settings());
+        request(cache, "a", 3);
+        request(cache, "b", 2);
+        request(cache, "c", 1);
+
+        assertEquals(List.of("a", "b"), keys(cache.hottestExpiring(2, 11 * MINUTE)));
+    }
+
+    @Test
+    void onlyFreshCachedEntriesAreSelected() {
+        ManagedCache<String> cache = cache(settings());
+        request(cache, "a", 1);
+        for (int i = 0; i < 3; i++) {
+            cache.get("fallback", () -> ScrapeResult.fallback("stale"));
+        }
+        assertThrows(ProfileNotFoundException.class, () -> cache.get("ghost", () -> ScrapeResult.notFound(null)));
+        assertThrows(IllegalStateException.class, () -> cache.get("failed", () -> {
+            throw new IllegalStateException("upstream down");
+        }));
+
+        assertEquals(List.of("a"), keys(cache.hottestExpiring(10, 11 * MINUTE)));
+    }
+
+    @Test
+    void keysBeingRefreshedAreSkipped() {
+        ManagedCache<String> cache = cache(settings());
+        request(cache, "a", 2);
+        request(cache, "b", 1);
+        assertTrue(cache.preRefresh("a", CompletableFuture::new));
+
+        assertEquals(List.of("b"), keys(cache.hottestExpiring(10, 11 * MINUTE)));
+    }
+
+    @Test
+    void decayHalvesCountsAndForgetsColdKeys() {
+        ManagedCache<String> cache = cache(settings());
+        request(cache, "a", 4);
+        request(cache, "b", 1);
+        cache.decayPopularity();
+
+        assertEquals(List.of(Map.entry("a", 2L)), cache.hottestExpiring(10, 11 * MINUTE));
+    }
+
+    @Test
+    void firstLoadGetsTheHardTtl() throws IOException {
+        CacheSettings settings = adaptiveSettings();
+        ProfileCacheRoot.Region store = store(settings);
+        cache(settings, store).put("alice", "v1");
+
+        assertEquals(10, ttlMinutes(store, "alice"));
+    }
+
+    @Test
+    void unchangedDataDoublesTheTtlUpToMaxTtl() throws IOException {
+        CacheSettings settings = adaptiveSettings();
+        ProfileCacheRoot.Region store = store(settings);
+        ManagedCache<String> cache = cache(settings, store);
+
+        cache.put("alice", "v1");
+        List<Long> ttls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            cache.put("alice", "v1");
+            ttls.add(ttlMinutes(store, "alice"));
+        }
+        assertEquals(List.of(20L, 40L, 60L, 60L), ttls);
+        assertEquals(4, cache.unchangedReloads());
+        assertEquals(0, cache.changedReloads());
+    }
+
+    @Test
+    void changedDataHalvesTheTtlDownToMinTtl() throws IOException {
+        CacheSettings settings = adaptiveSettings();
+        ProfileCacheRoot.Region store = store(settings);
+        ManagedCache<String> cache = cache(settings, store);
+
+        cache.put("alice", "v0");
+        List<Long> ttls = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            cache.put("alice", "v" + i);
+            ttls.add(store.get("alice").ttlMillis());
+        }
+        assertEquals(List.of(5 * MINUTE, 5 * MINUTE / 2, 5 * MINUTE / 4, MINUTE), ttls);
+        assertEquals(4, cache.changedReloads());
+    }
+
+    // Each key learns its own TTL
+    @Test
+    void keysAdaptIndependently() throws IOException {
+        CacheSettings settings = adaptiveSettings();
+        ProfileCacheRoot.Region store = store(settings);
+        ManagedCache<String> cache = cache(settings, store);
+
+        cache.put("alice", "a");
+        cache.put("bob", "b");
+        cache.put("alice", "a");
+        cache.put("bob", "b2");
+
+        assertEquals(20, ttlMinutes(store, "alice"));
+        assertEquals(5, ttlMinutes(store, "bob"));
+    }
+
+    @Test
+    void withoutMinAndMaxTtlEveryLoadGetsTheHardTtl() throws IOException {
+        CacheSettings settings = settings();
+        ProfileCacheRoot.Region store = store(settings);
+        ManagedCache<String> cache = cache(settings, store);
+
+        cache.put("alice", "v1");
+        cache.put("alice", "v1");
+        cache.put("alice", "v2");
+
+        assertEquals(10, ttlMinutes(store, "alice"));
+        assertEquals(0, cache.unchangedReloads() + cache.changedReloads());
+    }
+}
@@ -0,0 +1,95 @@
+package com.piandphi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotFoundFilterTest {
+
+    private static final long PERIOD_MILLIS = 100;
+
+    private static NotFoundFilter filter() {
+        return new NotFoundFilter(1000, 0.01, TimeUnit.MILLISECONDS.toNanos(PERIOD_MILLIS));
+    }
+
+    // The first call after the wait rotates the filter
+    private static void waitPeriods(double periods) throws InterruptedException {
+        Thread.sleep((long) (PERIOD_MILLIS * periods));
+    }
+
+    @Test
+    void addedNamesAreRejected() {
+        NotFoundFilter filter = filter();
+        filter.add("ghost");
+
+        assertTrue(filter.mightContain("ghost"));
+        assertFalse(filter.mightContain("alice"));
+        assertEquals(1, filter.rejected());
+        assertEquals(1, filter.size());
+    }
+
+    @Test
+    void nameSurvivesOneRotation() throws Exception {
+        NotFoundFilter filter = filter();
+        filter.add("ghost");
+
+        waitPeriods(1.2);
+        assertTrue(filter.mightContain("ghost"));
+    }
+
+    @Test
+    void nameIsForgottenAfterTwoRotations() throws Exception {
+        NotFoundFilter filter = filter();
+        filter.add("ghost");
+
+        waitPeriods(1.2);
+        filter.add("other");
+        waitPeriods(1.2);
+        assertFalse(filter.mightContain("ghost"));
+        assertTrue(filter.mightContain("other"));
+    }
+
+    // No lookups in between must not stretch how long a name is remembered
+    @Test
+    void idleFilterForgetsBothGenerations() throws Exception {
+        NotFoundFilter filter = filter();
+        filter.add("ghost");
+
+        waitPeriods(2.2);
+        assertFalse(filter.mightContain("ghost"));
+        assertEquals(0, filter.size());
+    }
+
+    @Test
+    void clearForgetsEverything() {
+        NotFoundFilter filter = filter();
+        filter.add("ghost");
+        filter.clear();
+
+        assertFalse(filter.mightContain("ghost"));
+        assertEquals(0, filter.size());
+    }
+
+    @Test
+    void falsePositivesStayNearTheConfiguredRate() {
+        NotFoundFilter filter = new NotFoundFilter(1000, 0.01, TimeUnit.HOURS.toNanos(1));
+        for (int i = 0; i < 1000; i++) {
+            filter.add("ghost-" + i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("ghost-" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("user-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, falsePositives + " false positives in 10000");
+    }
+}
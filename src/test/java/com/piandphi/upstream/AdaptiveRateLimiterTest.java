@@ -0,0 +1,61 @@
+package com.piandphi.upstream;
+
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveRateLimiterTest {
+
+    private static AdaptiveRateLimiter limiter(Duration maxWait) {
+        RateLimitSettings settings = new RateLimitSettings("test");
+        settings.setInitialRate(10);
+        settings.setMaxWait(maxWait);
+        return new AdaptiveRateLimiter("test", settings);
+    }
+
+    private static void throttle(AdaptiveRateLimiter limiter, String retryAfter) {
+        limiter.onResponse(HttpResponse.status(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", retryAfter));
+    }
+
+    @Test
+    void slotReservedBeforeRetryAfterIsHeldBackOnRecheck() {
+        AdaptiveRateLimiter limiter = limiter(Duration.ofSeconds(10));
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.recheck());
+
+        throttle(limiter, "2");
+
+        long wait = limiter.recheck();
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(1900), "waited " + wait);
+    }
+
+    @Test
+    void slotsAfterRetryAfterStartAtThePauseAndStaySpaced() {
+        AdaptiveRateLimiter limiter = limiter(Duration.ofSeconds(10));
+        throttle(limiter, "2");
+
+        long first = limiter.reserve();
+        long second = limiter.reserve();
+        assertTrue(first > TimeUnit.MILLISECONDS.toNanos(1900), "waited " + first);
+        // The 429 halved the rate to 5 req/s
+        assertTrue(second - first >= TimeUnit.MILLISECONDS.toNanos(190), "spacing " + (second - first));
+    }
+
+    @Test
+    void recheckPastMaxWaitIsRejected() {
+        AdaptiveRateLimiter limiter = limiter(Duration.ofMillis(500));
+        limiter.reserve();
+
+        throttle(limiter, "5");
+
+        assertThrows(UpstreamThrottledException.class, limiter::recheck);
+        assertEquals(1, limiter.rejections());
+    }
+}
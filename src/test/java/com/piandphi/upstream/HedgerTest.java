@@ -0,0 +1,195 @@
+package com.piandphi.upstream;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgerTest {
+
+    private static final long SAMPLE_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final List<CompletableFuture<String>> sent = new CopyOnWriteArrayList<>();
+
+    private static Hedger hedger(double budgetPercent) {
+        HedgingSettings settings = new HedgingSettings("test");
+        settings.setEnabled(true);
+        settings.setPercentile(50);
+        settings.setBudgetPercent(budgetPercent);
+        settings.setMinDelay(Duration.ofMillis(10));
+        settings.setSampleSize(10);
+        settings.setMinSamples(1);
+        return new Hedger(settings);
+    }
+
+    // A hedger that has seen one 20 ms response, so requests are hedged after 20 ms
+    private static Hedger warmedUp(double budgetPercent) {
+        Hedger hedger = hedger(budgetPercent);
+        hedger.record(SAMPLE_NANOS);
+        return hedger;
+    }
+
+    private CompletableFuture<String> send() {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        sent.add(future);
+        return future;
+    }
+
+    private void awaitSends(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (sent.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, sent.size());
+    }
+
+    @Test
+    void withoutSamplesTheRequestIsSentOnce() throws Exception {
+        Hedger hedger = hedger(100);
+        assertEquals(-1, hedger.begin());
+
+        CompletableFuture<String> result = hedger.hedge(this::send);
+        assertEquals(1, sent.size());
+        sent.get(0).complete("first");
+        assertEquals("first", result.get());
+    }
+
+    @Test
+    void thresholdFollowsThePercentileButNotBelowMinDelay() {
+        Hedger hedger = hedger(100);
+        hedger.record(SAMPLE_NANOS);
+        assertEquals(SAMPLE_NANOS, hedger.begin());
+
+        hedger = hedger(100);
+        hedger.record(TimeUnit.MILLISECONDS.toNanos(2));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), hedger.begin());
+    }
+
+    // Each request earns budget-percent / 100 of a token and a hedge spends one
+    @Test
+    void hedgesStayWithinTheBudget() {
+        Hedger hedger = warmedUp(50);
+        hedger.begin();
+        assertFalse(hedger.tryHedge());
+        hedger.begin();
+        assertTrue(hedger.tryHedge());
+        assertFalse(hedger.tryHedge());
+        assertEquals(1, hedger.hedges());
+    }
+
+    @Test
+    void tenPercentBudgetHedgesEveryTenthRequest() {
+        Hedger hedger = warmedUp(10);
+        for (int i = 0; i < 9; i++) {
+            hedger.begin();
+            assertFalse(hedger.tryHedge());
+        }
+        hedger.begin();
+        assertTrue(hedger.tryHedge());
+    }
+
+    @Test
+    void unusedBudgetIsCappedForBursts() {
+        Hedger hedger = warmedUp(100);
+        for (int i = 0; i < 20; i++) {
+            hedger.begin();
+        }
+        for (int i = 0; i < 10; i++) {
+            assertTrue(hedger.tryHedge());
+        }
+        assertFalse(hedger.tryHedge());
+    }
+
+    @Test
+    void hedgeWinsAndTheFirstRequestIsCancelled() throws Exception {
+        Hedger hedger = warmedUp(100);
+        CompletableFuture<String> result = hedger.hedge(this::send);
+        awaitSends(2);
+
+        sent.get(1).complete("hedge");
+        assertEquals("hedge", result.get(1, TimeUnit.SECONDS));
+        assertTrue(sent.get(0).isCancelled());
+        assertEquals(1, hedger.hedges());
+        assertEquals(1, hedger.wins());
+    }
+
+    @Test
+    void firstRequestWinsAndTheHedgeIsCancelled() throws Exception {
+        Hedger hedger = warmedUp(100);
+        CompletableFuture<String> result = hedger.hedge(this::send);
+        awaitSends(2);
+
+        sent.get(0).complete("first");
+        assertEquals("first", result.get(1, TimeUnit.SECONDS));
+        assertTrue(sent.get(1).isCancelled());
+        assertEquals(0, hedger.wins());
+    }
+
+    @Test
+    void fastAnswerIsNotHedged() throws Exception {
+        Hedger hedger = warmedUp(100);
+        CompletableFuture<String> result = hedger.hedge(this::send);
+        sent.get(0).complete("first");
+
+        assertEquals("first", result.get());
+        Thread.sleep(60);
+        assertEquals(1, sent.size());
+        assertEquals(0, hedger.hedges());
+    }
+
+    @Test
+    void noBudgetNoHedge() throws Exception {
+        Hedger hedger = warmedUp(0);
+        CompletableFuture<String> result = hedger.hedge(this::send);
+
+        Thread.sleep(60);
+        assertEquals(1, sent.size());
+        sent.get(0).complete("first");
+        assertEquals("first", result.get());
+    }
+
+    @Test
+    void oneFailureIsCoveredByTheOtherRequest() throws Exception {
+        Hedger hedger = warmedUp(100);
+        CompletableFuture<String> result = hedger.hedge(this::send);
+        awaitSends(2);
+
+        sent.get(0).completeExceptionally(new IllegalStateException("first failed"));
+        assertFalse(result.isDone());
+        sent.get(1).complete("hedge");
+        assertEquals("hedge", result.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failsOnceEveryRequestHasFailed() throws Exception {
+        Hedger hedger = warmedUp(100);
+        CompletableFuture<String> result = hedger.hedge(this::send);
+        awaitSends(2);
+
+        sent.get(0).completeExceptionally(new IllegalStateException("first failed"));
+        sent.get(1).completeExceptionally(new IllegalStateException("hedge failed"));
+        ExecutionException error = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+    }
+
+    @Test
+    void cancellingTheCallCancelsBothRequests() throws Exception {
+        Hedger hedger = warmedUp(100);
+        CompletableFuture<String> result = hedger.hedge(this::send);
+        awaitSends(2);
+
+        result.cancel(false);
+        assertTrue(sent.get(0).isCancelled());
+        assertTrue(sent.get(1).isCancelled());
+    }
+}